@@ -0,0 +1,141 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.queue;
+
+import com.jagrosh.jmusicbot.settings.QueueType;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks for the hot paths of the queue implementations. Run with
+ * {@code mvn -P benchmark test-compile exec:exec}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueueBenchmark
+{
+    @State(Scope.Thread)
+    public static class QueueState
+    {
+        @Param({"10", "1000", "100000"})
+        public int size;
+
+        @Param({"1", "50", "500"})
+        public int requesters;
+
+        @Param({"LINEAR", "FAIR"})
+        public QueueType type;
+
+        AbstractQueue<Entry> queue;
+        SplittableRandom random;
+
+        @Setup(Level.Trial)
+        public void setUp()
+        {
+            random = new SplittableRandom(42);
+            fill();
+        }
+
+        void fill()
+        {
+            queue = type.createInstance(null);
+            for(int i=0; i<size; i++)
+                queue.add(new Entry(i % requesters));
+        }
+
+        Entry randomEntry()
+        {
+            return new Entry(random.nextInt(requesters));
+        }
+
+        int randomIndex()
+        {
+            return random.nextInt(queue.size());
+        }
+    }
+
+    /**
+     * State for the benchmarks that shrink the queue; it is refilled before
+     * every call, which is only accurate for the larger queue sizes
+     */
+    @State(Scope.Thread)
+    public static class RefilledQueueState extends QueueState
+    {
+        @Setup(Level.Invocation)
+        public void refill()
+        {
+            fill();
+        }
+    }
+
+    /**
+     * Adds an entry and removes it again, so the queue keeps its size
+     */
+    @Benchmark
+    public Entry add(QueueState state)
+    {
+        return state.queue.remove(state.queue.add(state.randomEntry()));
+    }
+
+    @Benchmark
+    public int shuffle(QueueState state)
+    {
+        return state.queue.shuffle(state.random.nextInt(state.requesters));
+    }
+
+    @Benchmark
+    public Entry moveItem(QueueState state)
+    {
+        return state.queue.moveItem(state.randomIndex(), state.randomIndex());
+    }
+
+    @Benchmark
+    public Entry get(QueueState state)
+    {
+        return state.queue.get(state.randomIndex());
+    }
+
+    @Benchmark
+    public int removeAll(RefilledQueueState state)
+    {
+        return state.queue.removeAll(state.random.nextInt(state.requesters));
+    }
+
+    @Benchmark
+    public int skip(RefilledQueueState state)
+    {
+        state.queue.skip(state.size / 2);
+        return state.queue.size();
+    }
+
+    public static class Entry implements Queueable
+    {
+        private final long identifier;
+
+        private Entry(long identifier)
+        {
+            this.identifier = identifier;
+        }
+
+        @Override
+        public long getIdentifier()
+        {
+            return identifier;
+        }
+    }
+}
@@ -15,19 +15,30 @@
  */
 package com.jagrosh.jmusicbot;
 
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.Arrays;
+import java.util.List;
+import com.jagrosh.jdautilities.command.CommandEvent;
 import com.jagrosh.jdautilities.commons.waiter.EventWaiter;
 import com.jagrosh.jmusicbot.audio.AloneInVoiceHandler;
 import com.jagrosh.jmusicbot.audio.AudioHandler;
 import com.jagrosh.jmusicbot.audio.NowplayingHandler;
 import com.jagrosh.jmusicbot.audio.PlayerManager;
 import com.jagrosh.jmusicbot.gui.GUI;
+import com.jagrosh.jmusicbot.metrics.MetricsServer;
 import com.jagrosh.jmusicbot.playlist.PlaylistLoader;
 import com.jagrosh.jmusicbot.settings.SettingsManager;
+import com.jagrosh.jmusicbot.utils.KeyedExecutor;
+import com.jagrosh.jmusicbot.utils.MonitoredScheduler;
 import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.entities.Activity;
+import net.dv8tion.jda.api.entities.ChannelType;
 import net.dv8tion.jda.api.entities.Guild;
 
 /**
@@ -37,13 +48,18 @@ import net.dv8tion.jda.api.entities.Guild;
 public class Bot
 {
     private final EventWaiter waiter;
-    private final ScheduledExecutorService threadpool;
+    private final MonitoredScheduler uiScheduler;
+    private final MonitoredScheduler voiceScheduler;
+    private final MonitoredScheduler maintenanceScheduler;
+    private final ExecutorService commandThreads;
+    private final KeyedExecutor commandExecutor;
     private final BotConfig config;
     private final SettingsManager settings;
     private final PlayerManager players;
     private final PlaylistLoader playlists;
     private final NowplayingHandler nowplaying;
     private final AloneInVoiceHandler aloneInVoiceHandler;
+    private final MetricsServer metricsServer;
     
     private boolean shuttingDown = false;
     private JDA jda;
@@ -55,13 +71,20 @@ public class Bot
         this.config = config;
         this.settings = settings;
         this.playlists = new PlaylistLoader(config);
-        this.threadpool = Executors.newSingleThreadScheduledExecutor();
+        this.uiScheduler = new MonitoredScheduler("ui-updater", 1);
+        this.voiceScheduler = new MonitoredScheduler("voice", 2);
+        this.maintenanceScheduler = new MonitoredScheduler("maintenance", 1);
+        this.commandThreads = config.getCommandThreads() > 0 ? createCommandThreads(config.getCommandThreads()) : null;
+        this.commandExecutor = commandThreads == null ? null : new KeyedExecutor(commandThreads);
         this.players = new PlayerManager(this);
         this.players.init();
         this.nowplaying = new NowplayingHandler(this);
         this.nowplaying.init();
         this.aloneInVoiceHandler = new AloneInVoiceHandler(this);
         this.aloneInVoiceHandler.init();
+        this.metricsServer = new MetricsServer(this);
+        if(config.getMetricsPort() > 0)
+            this.metricsServer.start(config.getMetricsPort());
     }
     
     public BotConfig getConfig()
@@ -79,9 +102,51 @@ public class Bot
         return waiter;
     }
     
-    public ScheduledExecutorService getThreadpool()
+    /**
+     * @return the scheduler for periodic message and status updates
+     */
+    public MonitoredScheduler getUIScheduler()
+    {
+        return uiScheduler;
+    }
+    
+    /**
+     * @return the scheduler for connecting to and leaving voice channels
+     */
+    public MonitoredScheduler getVoiceScheduler()
+    {
+        return voiceScheduler;
+    }
+    
+    /**
+     * @return the scheduler for infrequent background jobs
+     */
+    public MonitoredScheduler getMaintenanceScheduler()
+    {
+        return maintenanceScheduler;
+    }
+    
+    public List<MonitoredScheduler> getSchedulers()
     {
-        return threadpool;
+        return Arrays.asList(uiScheduler, voiceScheduler, maintenanceScheduler);
+    }
+    
+    /**
+     * Runs the slow part of a command, like reading a playlist file, off
+     * JDA's event thread, unless "commandthreads" is set to 0, in which case
+     * it runs right away. Tasks for the same server (or the same user's DMs) run one
+     * at a time and in order. Commands themselves are still dispatched on the
+     * event thread, since the command client isn't thread-safe.
+     * 
+     * @param event the command the task belongs to
+     * @param task the task
+     */
+    public void runCommandTask(CommandEvent event, Runnable task)
+    {
+        if(commandExecutor == null)
+            task.run();
+        else
+            commandExecutor.execute(event.isFromType(ChannelType.TEXT) ? event.getGuild().getIdLong() : event.getAuthor().getIdLong(), task);
     }
     
     public PlayerManager getPlayerManager()
@@ -113,7 +178,7 @@ public class Bot
     {
         Guild guild = jda.getGuildById(guildId);
         if(guild!=null)
-            threadpool.submit(() -> guild.getAudioManager().closeAudioConnection());
+            voiceScheduler.submit(() -> guild.getAudioManager().closeAudioConnection());
     }
     
     public void resetGame()
@@ -128,7 +193,10 @@ public class Bot
         if(shuttingDown)
             return;
         shuttingDown = true;
-        threadpool.shutdownNow();
+        getSchedulers().forEach(MonitoredScheduler::shutdownNow);
+        if(commandThreads != null)
+            commandThreads.shutdownNow();
+        metricsServer.stop();
         if(jda.getStatus()!=JDA.Status.SHUTTING_DOWN)
         {
             jda.getGuilds().stream().forEach(g -> 
@@ -143,6 +211,7 @@ public class Bot
             });
             jda.shutdown();
         }
+        settings.shutdown();
         if(gui!=null)
             gui.dispose();
         System.exit(0);
@@ -157,4 +226,27 @@ public class Bot
     {
         this.gui = gui;
     }
+    
+    /**
+     * Creates the executor for command tasks: virtual threads when the JVM
+     * has them (Java 21+), since the tasks mostly wait on the disk, and
+     * otherwise a pool of the given size
+     */
+    private static ExecutorService createCommandThreads(int threads)
+    {
+        try
+        {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch(ReflectiveOperationException ignore) {}
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> 
+        {
+            Thread t = new Thread(r, "command-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
 }
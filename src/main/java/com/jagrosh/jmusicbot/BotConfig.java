@@ -41,10 +41,10 @@ public class BotConfig
     private Path path = null;
     private String token, prefix, altprefix, helpWord, playlistsFolder, logLevel,
             successEmoji, warningEmoji, errorEmoji, loadingEmoji, searchingEmoji,
-            evalEngine;
+            evalEngine, trackCacheFile, settingsStore;
     private boolean stayInChannel, songInGame, npImages, updatealerts, useEval, dbots;
-    private long owner, maxSeconds, aloneTimeUntilStop;
-    private int maxYTPlaylistPages;
+    private long owner, maxSeconds, aloneTimeUntilStop, trackCacheTime, trackCachePlaylistTime, settingsWriteDelay;
+    private int maxYTPlaylistPages, frameBufferDuration, metricsPort, trackCacheSize, playlistConcurrency, settingsCacheSize, commandThreads;
     private double skipratio;
     private OnlineStatus status;
     private Activity game;
@@ -93,7 +93,18 @@ public class BotConfig
             evalEngine = config.getString("evalengine");
             maxSeconds = config.getLong("maxtime");
             maxYTPlaylistPages = config.getInt("maxytplaylistpages");
+            playlistConcurrency = config.getInt("playlistconcurrency");
+            frameBufferDuration = config.getInt("framebuffer");
+            metricsPort = config.getInt("metricsport");
+            trackCacheSize = config.getInt("trackcache");
+            trackCacheTime = config.getLong("trackcachetime");
+            trackCachePlaylistTime = config.getLong("trackcacheplaylisttime");
+            trackCacheFile = config.getString("trackcachefile");
             aloneTimeUntilStop = config.getLong("alonetimeuntilstop");
+            settingsWriteDelay = config.getLong("settingswritedelay");
+            settingsStore = config.getString("settingsstore");
+            settingsCacheSize = config.getInt("settingscache");
+            commandThreads = config.getInt("commandthreads");
             playlistsFolder = config.getString("playlistsfolder");
             aliases = config.getConfig("aliases");
             transforms = config.getConfig("transforms");
@@ -348,6 +359,61 @@ public class BotConfig
         return maxYTPlaylistPages;
     }
     
+    public int getFrameBufferDuration()
+    {
+        return frameBufferDuration;
+    }
+    
+    public int getPlaylistConcurrency()
+    {
+        return playlistConcurrency;
+    }
+    
+    public String getSettingsStore()
+    {
+        return settingsStore;
+    }
+    
+    public int getSettingsCacheSize()
+    {
+        return settingsCacheSize;
+    }
+    
+    public int getCommandThreads()
+    {
+        return commandThreads;
+    }
+    
+    public long getSettingsWriteDelay()
+    {
+        return settingsWriteDelay;
+    }
+    
+    public int getMetricsPort()
+    {
+        return metricsPort;
+    }
+    
+    public int getTrackCacheSize()
+    {
+        return trackCacheSize;
+    }
+    
+    public long getTrackCacheTime()
+    {
+        return trackCacheTime;
+    }
+    
+    public long getTrackCachePlaylistTime()
+    {
+        return trackCachePlaylistTime;
+    }
+    
+    public String getTrackCacheFile()
+    {
+        return trackCacheFile;
+    }
+    
     public String getMaxTime()
     {
         return TimeUtil.formatTime(maxSeconds * 1000);
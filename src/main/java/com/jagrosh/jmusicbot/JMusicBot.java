@@ -27,6 +27,7 @@ import com.jagrosh.jmusicbot.commands.owner.*;
 import com.jagrosh.jmusicbot.entities.Prompt;
 import com.jagrosh.jmusicbot.gui.GUI;
 import com.jagrosh.jmusicbot.settings.SettingsManager;
+import com.jagrosh.jmusicbot.settings.SettingsStore;
 import com.jagrosh.jmusicbot.utils.OtherUtil;
 import java.awt.Color;
 import java.util.Arrays;
@@ -90,7 +91,10 @@ public class JMusicBot
         
         // set up the listener
         EventWaiter waiter = new EventWaiter();
-        SettingsManager settings = new SettingsManager();
+        SettingsManager settings = new SettingsManager(SettingsStore.create(config.getSettingsStore()), 
+                config.getSettingsWriteDelay(), config.getSettingsCacheSize());
+        // pending settings changes are also written when the process is stopped, e.g. by docker or systemd
+        Runtime.getRuntime().addShutdownHook(new Thread(settings::shutdown, "settings-shutdown"));
         Bot bot = new Bot(waiter, config, settings);
         CommandClient client = createCommandClient(config, settings, bot);
         
@@ -222,6 +226,7 @@ public class JMusicBot
 
                         new AutoplaylistCmd(bot),
                         new DebugCmd(bot),
+                        new MetricsCmd(bot),
                         new PlaylistCmd(bot),
                         new SetavatarCmd(bot),
                         new SetgameCmd(bot),
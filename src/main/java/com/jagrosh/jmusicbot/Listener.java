@@ -24,6 +24,7 @@ import net.dv8tion.jda.api.entities.VoiceChannel;
 import net.dv8tion.jda.api.events.ReadyEvent;
 import net.dv8tion.jda.api.events.ShutdownEvent;
 import net.dv8tion.jda.api.events.guild.GuildJoinEvent;
+import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
 import net.dv8tion.jda.api.events.guild.voice.GuildVoiceUpdateEvent;
 import net.dv8tion.jda.api.events.message.guild.GuildMessageDeleteEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
@@ -69,7 +70,7 @@ public class Listener extends ListenerAdapter
         });
         if(bot.getConfig().useUpdateAlerts())
         {
-            bot.getThreadpool().scheduleWithFixedDelay(() -> 
+            bot.getMaintenanceScheduler().scheduleWithFixedDelay(() -> 
             {
                 try
                 {
@@ -97,6 +98,7 @@ public class Listener extends ListenerAdapter
     public void onGuildVoiceUpdate(@NotNull GuildVoiceUpdateEvent event)
     {
         bot.getAloneInVoiceHandler().onVoiceUpdate(event);
+        bot.getNowplayingHandler().onVoiceUpdate(event);
     }
 
     @Override
@@ -110,6 +112,13 @@ public class Listener extends ListenerAdapter
     {
         credit(event.getJDA());
     }
+
+    @Override
+    public void onGuildLeave(GuildLeaveEvent event) 
+    {
+        bot.getNowplayingHandler().onGuildLeave();
+        bot.getPlayerManager().getMetrics().removeGuild(event.getGuild().getIdLong());
+    }
     
     // make sure people aren't adding clones to dbots
     private void credit(JDA jda)
@@ -120,7 +129,7 @@ public class Listener extends ListenerAdapter
         if(bot.getConfig().getDBots())
             return;
         jda.getTextChannelById(119222314964353025L)
-                .sendMessage("This account is running JMusicBot. Please do not list bot clones on this server, <@"+bot.getConfig().getOwnerId()+">.").complete();
-        dbots.leave().queue();
+                .sendMessage("This account is running JMusicBot. Please do not list bot clones on this server, <@"+bot.getConfig().getOwnerId()+">.")
+                .queue(m -> dbots.leave().queue(), t -> dbots.leave().queue());
     }
 }
@@ -16,24 +16,24 @@
 package com.jagrosh.jmusicbot.audio;
 
 import com.jagrosh.jmusicbot.Bot;
+import com.jagrosh.jmusicbot.utils.ConcurrentLongMap;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.events.guild.voice.GuildVoiceUpdateEvent;
 
-import java.time.Instant;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 /**
+ * Stops playback in guilds where the bot has been left alone for too long.
+ * Every guild that is alone has its own timeout on the voice scheduler,
+ * which is cancelled when someone rejoins, so nothing is polled.
  *
  * @author Michaili K (mysteriouscursor+git@protonmail.com)
  */
 public class AloneInVoiceHandler
 {
     private final Bot bot;
-    private final HashMap<Long, Instant> aloneSince = new HashMap<>();
+    private final ConcurrentLongMap<ScheduledFuture<?>> timeouts = new ConcurrentLongMap<>();
     private long aloneTimeUntilStop = 0;
 
     public AloneInVoiceHandler(Bot bot)
@@ -44,31 +44,19 @@ public class AloneInVoiceHandler
     public void init()
     {
         aloneTimeUntilStop = bot.getConfig().getAloneTimeUntilStop();
-        if(aloneTimeUntilStop > 0)
-            bot.getThreadpool().scheduleWithFixedDelay(() -> check(), 0, 5, TimeUnit.SECONDS);
     }
     
-    private void check()
+    private void timeout(long guildId, ScheduledFuture<?> self)
     {
-        Set<Long> toRemove = new HashSet<>();
-        for(Map.Entry<Long, Instant> entrySet: aloneSince.entrySet())
-        {
-            if(entrySet.getValue().getEpochSecond() > Instant.now().getEpochSecond() - aloneTimeUntilStop) continue;
-
-            Guild guild = bot.getJDA().getGuildById(entrySet.getKey());
-
-            if(guild == null)
-            {
-                toRemove.add(entrySet.getKey());
-                continue;
-            }
-
-            ((AudioHandler) guild.getAudioManager().getSendingHandler()).stopAndClear();
-            guild.getAudioManager().closeAudioConnection();
-
-            toRemove.add(entrySet.getKey());
-        }
-        toRemove.forEach(id -> aloneSince.remove(id));
+        // a newer timeout may have replaced this one, which must be kept
+        if(self != null)
+            timeouts.remove(guildId, self);
+        Guild guild = bot.getJDA().getGuildById(guildId);
+        // someone may have joined just as the timeout fired
+        if(guild == null || !isAlone(guild) || !(guild.getAudioManager().getSendingHandler() instanceof AudioHandler))
+            return;
+        ((AudioHandler) guild.getAudioManager().getSendingHandler()).stopAndClear();
+        guild.getAudioManager().closeAudioConnection();
     }
 
     public void onVoiceUpdate(GuildVoiceUpdateEvent event)
@@ -78,13 +66,42 @@ public class AloneInVoiceHandler
         Guild guild = event.getEntity().getGuild();
         if(!bot.getPlayerManager().hasHandler(guild)) return;
 
-        boolean alone = isAlone(guild);
-        boolean inList = aloneSince.containsKey(guild.getIdLong());
+        long guildId = guild.getIdLong();
+        if(!isAlone(guild))
+        {
+            ScheduledFuture<?> timeout = timeouts.remove(guildId);
+            if(timeout != null)
+                timeout.cancel(false);
+        }
+        else
+        {
+            // a timeout that fired before it was stored here is done, and is replaced
+            ScheduledFuture<?> current = timeouts.get(guildId);
+            if(current == null || current.isDone())
+                timeouts.put(guildId, new Timeout(guildId).schedule());
+        }
+    }
 
-        if(!alone && inList)
-            aloneSince.remove(guild.getIdLong());
-        else if(alone && !inList)
-            aloneSince.put(guild.getIdLong(), Instant.now());
+    private class Timeout implements Runnable
+    {
+        private final long guildId;
+        private volatile ScheduledFuture<?> future;
+        
+        private Timeout(long guildId)
+        {
+            this.guildId = guildId;
+        }
+        
+        private ScheduledFuture<?> schedule()
+        {
+            return future = bot.getVoiceScheduler().schedule(this, aloneTimeUntilStop, TimeUnit.SECONDS);
+        }
+        
+        @Override
+        public void run()
+        {
+            timeout(guildId, future);
+        }
     }
 
     private boolean isAlone(Guild guild)
@@ -0,0 +1,221 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.audio;
+
+import com.sedmelluq.discord.lavaplayer.format.StandardAudioDataFormats;
+import com.sedmelluq.discord.lavaplayer.track.playback.AudioFrameProvider;
+import com.sedmelluq.discord.lavaplayer.track.playback.MutableAudioFrame;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Pulls Opus frames from a player into one reusable buffer, so the 20ms send
+ * path does not allocate anything once playback is running.
+ * 
+ * It also counts underruns: times the player's frame buffer ran dry in the
+ * middle of playback, which is heard as stutter.
+ */
+public class AudioFrameSender
+{
+    private final AudioFrameProvider provider;
+    private final BooleanSupplier playing;
+    private final ByteBuffer buffer;
+    private final MutableAudioFrame frame;
+    private final Totals totals;
+    
+    // only written by the audio send thread
+    private volatile long framesSent, bytesSent, misses, underruns, framesMissed, provideNanos;
+    private volatile boolean flowing = false;
+    private boolean dry = false;
+
+    /**
+     * @param provider the source of the frames
+     * @param playing  whether the provider is expected to have frames, ie. a
+     *                 track is playing and not paused
+     */
+    public AudioFrameSender(AudioFrameProvider provider, BooleanSupplier playing)
+    {
+        this(provider, playing, new Totals());
+    }
+    
+    /**
+     * @param provider the source of the frames
+     * @param playing  whether the provider is expected to have frames, ie. a
+     *                 track is playing and not paused
+     * @param totals   process-wide counters that this sender adds to as well,
+     *                 so they keep counting after the sender is gone
+     */
+    public AudioFrameSender(AudioFrameProvider provider, BooleanSupplier playing, Totals totals)
+    {
+        this.provider = provider;
+        this.playing = playing;
+        this.totals = totals;
+        this.buffer = ByteBuffer.allocate(StandardAudioDataFormats.DISCORD_OPUS.maximumChunkSize());
+        this.frame = new MutableAudioFrame();
+        this.frame.setBuffer(buffer);
+    }
+
+    /**
+     * Tries to pull the next frame into the buffer
+     *
+     * @return true if a frame is ready to be sent
+     */
+    public boolean canProvide()
+    {
+        long start = System.nanoTime();
+        boolean provided = provider.provide(frame);
+        long nanos = System.nanoTime() - start;
+        provideNanos += nanos;
+        totals.provideNanos.add(nanos);
+        if(provided)
+        {
+            framesSent++;
+            bytesSent += frame.getDataLength();
+            totals.framesSent.increment();
+            totals.bytesSent.add(frame.getDataLength());
+            flowing = true;
+            dry = false;
+            return true;
+        }
+        misses++;
+        totals.misses.increment();
+        if(!playing.getAsBoolean())
+        {
+            flowing = false;
+            dry = false;
+        }
+        else if(flowing)
+        {
+            framesMissed++;
+            totals.framesMissed.increment();
+            if(!dry)
+            {
+                underruns++;
+                totals.underruns.increment();
+            }
+            dry = true;
+        }
+        return false;
+    }
+    
+    /**
+     * Called when a new track starts, so the time it takes to load is not
+     * counted as an underrun
+     */
+    public void onTrackStart()
+    {
+        flowing = false;
+    }
+
+    /**
+     * @return the buffer holding the frame pulled by the last successful
+     *         {@link #canProvide()}, flipped for reading
+     */
+    public ByteBuffer provide20MsAudio()
+    {
+        return buffer.flip();
+    }
+    
+    /**
+     * @return true if frames have been arriving for the current track
+     */
+    public boolean isFlowing()
+    {
+        return flowing;
+    }
+    
+    public long getFramesSent()
+    {
+        return framesSent;
+    }
+    
+    public long getBytesSent()
+    {
+        return bytesSent;
+    }
+    
+    /**
+     * @return the number of times no frame was available, including while
+     *         nothing was playing
+     */
+    public long getMisses()
+    {
+        return misses;
+    }
+    
+    /**
+     * @return the number of times frames stopped arriving during playback
+     */
+    public long getUnderruns()
+    {
+        return underruns;
+    }
+    
+    /**
+     * @return the number of 20ms frames that could not be sent during underruns
+     */
+    public long getFramesMissed()
+    {
+        return framesMissed;
+    }
+    
+    /**
+     * @return the total time spent pulling frames from the player, in nanoseconds
+     */
+    public long getProvideNanos()
+    {
+        return provideNanos;
+    }
+    
+    /**
+     * The counters of every sender that shares it, including senders that
+     * have since been dropped, so they only ever go up
+     */
+    public static class Totals
+    {
+        private final LongAdder framesSent = new LongAdder(), bytesSent = new LongAdder(), misses = new LongAdder(), 
+                underruns = new LongAdder(), framesMissed = new LongAdder(), provideNanos = new LongAdder();
+        
+        public long getFramesSent()
+        {
+            return framesSent.sum();
+        }
+        
+        public long getBytesSent()
+        {
+            return bytesSent.sum();
+        }
+        
+        public long getMisses()
+        {
+            return misses.sum();
+        }
+        
+        public long getUnderruns()
+        {
+            return underruns.sum();
+        }
+        
+        public long getFramesMissed()
+        {
+            return framesMissed.sum();
+        }
+        
+        public long getProvideNanos()
+        {
+            return provideNanos.sum();
+        }
+    }
+}
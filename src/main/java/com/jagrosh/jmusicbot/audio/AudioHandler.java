@@ -25,13 +25,13 @@ import com.sedmelluq.discord.lavaplayer.player.event.AudioEventAdapter;
 import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrackEndReason;
-import com.sedmelluq.discord.lavaplayer.track.playback.AudioFrame;
+import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import com.jagrosh.jmusicbot.settings.Settings;
 import com.jagrosh.jmusicbot.utils.FormatUtil;
+import com.jagrosh.jmusicbot.utils.ShuffleUtil;
 import com.sedmelluq.discord.lavaplayer.source.youtube.YoutubeAudioTrack;
 import java.nio.ByteBuffer;
 import net.dv8tion.jda.api.EmbedBuilder;
@@ -54,20 +54,22 @@ public class AudioHandler extends AudioEventAdapter implements AudioSendHandler
     public final static String STOP_EMOJI  = "\u23F9"; // ⏹
 
 
-    private final List<AudioTrack> defaultQueue = new LinkedList<>();
+    private final List<AudioTrack> defaultQueue = new ArrayList<>();
     private final Set<String> votes = new HashSet<>();
     
     private final PlayerManager manager;
     private final AudioPlayer audioPlayer;
+    private final AudioFrameSender sender;
     private final long guildId;
     
-    private AudioFrame lastFrame;
     private AbstractQueue<QueuedTrack> queue;
 
     protected AudioHandler(PlayerManager manager, Guild guild, AudioPlayer player)
     {
         this.manager = manager;
         this.audioPlayer = player;
+        this.sender = new AudioFrameSender(player, () -> player.getPlayingTrack()!=null && !player.isPaused(), 
+                manager.getMetrics().getFrameTotals());
         this.guildId = guild.getIdLong();
 
         this.setQueueType(manager.getBot().getSettingsManager().getSettings(guildId).getQueueType());
@@ -103,6 +105,26 @@ public class AudioHandler extends AudioEventAdapter implements AudioSendHandler
             return queue.add(qtrack);
     }
     
+    /**
+     * Adds many tracks at once, playing the first one if nothing is playing
+     * 
+     * @param qtracks the tracks, in the order they were requested
+     * @return the number of tracks added
+     */
+    public int addTracks(List<QueuedTrack> qtracks)
+    {
+        if(qtracks.isEmpty())
+            return 0;
+        List<QueuedTrack> rest = qtracks;
+        if(audioPlayer.getPlayingTrack()==null)
+        {
+            audioPlayer.playTrack(qtracks.get(0).getTrack());
+            rest = qtracks.subList(1, qtracks.size());
+        }
+        queue.addAll(rest);
+        return qtracks.size();
+    }
+    
     public AbstractQueue<QueuedTrack> getQueue()
     {
         return queue;
@@ -131,6 +153,11 @@ public class AudioHandler extends AudioEventAdapter implements AudioSendHandler
         return audioPlayer;
     }
     
+    public AudioFrameSender getFrameSender()
+    {
+        return sender;
+    }
+    
     public RequestMetadata getRequestMetadata()
     {
         if(audioPlayer.getPlayingTrack() == null)
@@ -153,10 +180,13 @@ public class AudioHandler extends AudioEventAdapter implements AudioSendHandler
         Playlist pl = manager.getBot().getPlaylistLoader().getPlaylist(settings.getDefaultPlaylist());
         if(pl==null || pl.getItems().isEmpty())
             return false;
-        pl.loadTracks(manager, (at) -> 
+        pl.loadTracks(manager, guildId, (at) -> 
         {
             if(audioPlayer.getPlayingTrack()==null)
                 audioPlayer.playTrack(at);
+            else if(pl.isShuffle())
+                // insert at a random spot, so the default queue stays shuffled while it fills up
+                ShuffleUtil.addRandomly(defaultQueue, at);
             else
                 defaultQueue.add(at);
         }, () -> 
@@ -186,7 +216,7 @@ public class AudioHandler extends AudioEventAdapter implements AudioSendHandler
         {
             if(!playFromDefault())
             {
-                manager.getBot().getNowplayingHandler().onTrackUpdate(null);
+                manager.getBot().getNowplayingHandler().onTrackUpdate(guildId);
                 if(!manager.getBot().getConfig().getStay())
                     manager.getBot().closeAudioConnection(guildId);
                 // unpause, in the case when the player was paused and the track has been skipped.
@@ -210,7 +240,20 @@ public class AudioHandler extends AudioEventAdapter implements AudioSendHandler
     public void onTrackStart(AudioPlayer player, AudioTrack track) 
     {
         votes.clear();
-        manager.getBot().getNowplayingHandler().onTrackUpdate(track);
+        sender.onTrackStart();
+        manager.getBot().getNowplayingHandler().onTrackUpdate(guildId);
+    }
+
+    @Override
+    public void onPlayerPause(AudioPlayer player)
+    {
+        manager.getBot().getNowplayingHandler().onPlayerUpdate(guildId);
+    }
+
+    @Override
+    public void onPlayerResume(AudioPlayer player)
+    {
+        manager.getBot().getNowplayingHandler().onPlayerUpdate(guildId);
     }
 
     
@@ -263,6 +306,22 @@ public class AudioHandler extends AudioEventAdapter implements AudioSendHandler
         else return null;
     }
     
+    /**
+     * @return a value that changes whenever the now playing message would
+     *         visibly change, apart from the elapsed time text: the track,
+     *         the cell of the progress bar, pausing or the volume icon; 0
+     *         when nothing is playing
+     * @see NowplayingHandler#getState
+     */
+    public long getNowPlayingState()
+    {
+        AudioTrack track = audioPlayer.getPlayingTrack();
+        if(track == null)
+            return 0;
+        return NowplayingHandler.getState(System.identityHashCode(track), track.getPosition(), track.getDuration(), 
+                audioPlayer.isPaused(), FormatUtil.volumeLevel(audioPlayer.getVolume()));
+    }
+    
     public Message getNoMusicPlaying(JDA jda)
     {
         Guild guild = guild(jda);
@@ -281,38 +340,16 @@ public class AudioHandler extends AudioEventAdapter implements AudioSendHandler
     }
     
     // Audio Send Handler methods
-    /*@Override
-    public boolean canProvide() 
-    {
-        if (lastFrame == null)
-            lastFrame = audioPlayer.provide();
-
-        return lastFrame != null;
-    }
-
-    @Override
-    public byte[] provide20MsAudio() 
-    {
-        if (lastFrame == null) 
-            lastFrame = audioPlayer.provide();
-
-        byte[] data = lastFrame != null ? lastFrame.getData() : null;
-        lastFrame = null;
-
-        return data;
-    }*/
-    
     @Override
     public boolean canProvide() 
     {
-        lastFrame = audioPlayer.provide();
-        return lastFrame != null;
+        return sender.canProvide();
     }
 
     @Override
     public ByteBuffer provide20MsAudio() 
     {
-        return ByteBuffer.wrap(lastFrame.getData());
+        return sender.provide20MsAudio();
     }
 
     @Override
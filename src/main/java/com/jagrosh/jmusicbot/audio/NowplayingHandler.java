@@ -16,45 +16,72 @@
 package com.jagrosh.jmusicbot.audio;
 
 import com.jagrosh.jmusicbot.Bot;
-import com.jagrosh.jmusicbot.entities.Pair;
-import com.jagrosh.jmusicbot.settings.Settings;
+import com.jagrosh.jmusicbot.utils.ConcurrentLongMap;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
-import net.dv8tion.jda.api.Permission;
+import java.util.concurrent.atomic.AtomicBoolean;
 import net.dv8tion.jda.api.entities.Activity;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.entities.TextChannel;
-import net.dv8tion.jda.api.exceptions.PermissionException;
-import net.dv8tion.jda.api.exceptions.RateLimitedException;
+import net.dv8tion.jda.api.events.guild.voice.GuildVoiceUpdateEvent;
+import net.dv8tion.jda.api.exceptions.ErrorResponseException;
+import net.dv8tion.jda.api.requests.ErrorResponse;
 
 /**
+ * Keeps the last now playing message of every guild up to date. Messages are
+ * only edited when something visible changes (the track, the cell of the
+ * progress bar, pausing or the volume); the elapsed time text alone only
+ * gets an edit once a minute. Each guild is checked on its own jittered schedule
+ * so edits are spread out instead of sent in bursts, and a channel whose
+ * edits are being held back by rate limits is checked less often until they
+ * go through quickly again. The checks are kept in a queue ordered by when
+ * they are due, so a tick only looks at the messages that are due.
  *
  * @author John Grosh (john.a.grosh@gmail.com)
  */
 public class NowplayingHandler
 {
+    private final static long INTERVAL = 5000; // ms between checks of a message
+    private final static long JITTER = 1000;   // ms that a check may move either way
+    private final static long TICK = 500;      // ms between looking for due checks
+    private final static long MAX_BACKOFF = 60000;
+    private final static long PRESENCE_DELAY = 5000;
+    private final static long TIME_REFRESH = 60000; // ms between edits that only move the elapsed time
+    private final static long PAUSED = 1 << 4;
+    private final static int MAX_FAILURES = 5; // failed edits in a row before a message is given up on
+    
     private final Bot bot;
-    private final HashMap<Long,Pair<Long,Long>> lastNP; // guild -> channel,message
+    private final ConcurrentLongMap<NPMessage> lastNP; // guild -> message
+    private final PriorityBlockingQueue<Check> checks = new PriorityBlockingQueue<>(16, Comparator.comparingLong(c -> c.time));
+    private final AtomicBoolean presencePending = new AtomicBoolean();
     
     public NowplayingHandler(Bot bot)
     {
         this.bot = bot;
-        this.lastNP = new HashMap<>();
+        this.lastNP = new ConcurrentLongMap<>();
     }
     
     public void init()
     {
         if(!bot.getConfig().useNPImages())
-            bot.getThreadpool().scheduleWithFixedDelay(() -> updateAll(), 0, 5, TimeUnit.SECONDS);
+            bot.getUIScheduler().scheduleWithFixedDelay(() -> updateDue(), 0, TICK, TimeUnit.MILLISECONDS);
     }
     
     public void setLastNPMessage(Message m)
     {
-        lastNP.put(m.getGuild().getIdLong(), new Pair<>(m.getTextChannel().getIdLong(), m.getIdLong()));
+        NPMessage np = new NPMessage(m.getGuild().getIdLong(), m.getTextChannel().getIdLong(), m.getIdLong());
+        // the message was just rendered, so it only needs editing once something changes
+        if(m.getGuild().getAudioManager().getSendingHandler() instanceof AudioHandler)
+            np.state = ((AudioHandler) m.getGuild().getAudioManager().getSendingHandler()).getNowPlayingState();
+        np.lastEdit = System.currentTimeMillis();
+        lastNP.put(np.guildId, np);
+        schedule(np, System.currentTimeMillis() + ThreadLocalRandom.current().nextLong(INTERVAL));
     }
     
     public void clearLastNPMessage(Guild guild)
@@ -62,62 +89,260 @@ public class NowplayingHandler
         lastNP.remove(guild.getIdLong());
     }
     
-    private void updateAll()
+    private void updateDue()
     {
-        Set<Long> toRemove = new HashSet<>();
-        for(long guildId: lastNP.keySet())
+        long now = System.currentTimeMillis();
+        for(Check check = checks.poll(); check != null; check = checks.poll())
         {
-            Guild guild = bot.getJDA().getGuildById(guildId);
-            if(guild==null)
+            if(check.time > now)
             {
-                toRemove.add(guildId);
-                continue;
-            }
-            Pair<Long,Long> pair = lastNP.get(guildId);
-            TextChannel tc = guild.getTextChannelById(pair.getKey());
-            if(tc==null)
-            {
-                toRemove.add(guildId);
-                continue;
+                checks.add(check);
+                return;
             }
-            AudioHandler handler = (AudioHandler)guild.getAudioManager().getSendingHandler();
-            Message msg = handler.getNowPlaying(bot.getJDA());
-            if(msg==null)
-            {
-                msg = handler.getNoMusicPlaying(bot.getJDA());
-                toRemove.add(guildId);
-            }
-            try 
+            NPMessage np = check.np;
+            // checks that were moved, and checks of messages that were replaced, are skipped
+            if(check.time == np.nextUpdate && !np.pending && lastNP.get(np.guildId) == np)
+                update(np, now);
+        }
+    }
+    
+    private void schedule(NPMessage np, long time)
+    {
+        np.nextUpdate = time;
+        checks.add(new Check(np, time));
+    }
+    
+    /**
+     * Schedules the next check once an edit has gone through or failed
+     */
+    private void finish(NPMessage np)
+    {
+        np.pending = false;
+        schedule(np, np.nextUpdate);
+    }
+    
+    private void update(NPMessage np, long now)
+    {
+        long guildId = np.guildId;
+        Guild guild = bot.getJDA().getGuildById(guildId);
+        TextChannel tc = guild==null ? null : guild.getTextChannelById(np.channelId);
+        if(tc==null || !(guild.getAudioManager().getSendingHandler() instanceof AudioHandler))
+        {
+            lastNP.remove(guildId, np);
+            return;
+        }
+        AudioHandler handler = (AudioHandler)guild.getAudioManager().getSendingHandler();
+        long next = now + INTERVAL + np.backoff + ThreadLocalRandom.current().nextLong(-JITTER, JITTER + 1);
+        long state = handler.getNowPlayingState();
+        if(!needsEdit(state, np.state, now - np.lastEdit))
+        {
+            schedule(np, next);
+            return;
+        }
+        Message msg = state == 0 ? null : handler.getNowPlaying(bot.getJDA());
+        if(msg==null)
+        {
+            msg = handler.getNoMusicPlaying(bot.getJDA());
+            lastNP.remove(guildId, np);
+        }
+        np.state = state;
+        np.lastEdit = now;
+        np.nextUpdate = next;
+        np.pending = true;
+        long start = System.currentTimeMillis();
+        try 
+        {
+            tc.editMessageById(np.messageId, msg).queue(m -> 
             {
-                tc.editMessageById(pair.getValue(), msg).queue(m->{}, t -> lastNP.remove(guildId));
-            } 
-            catch(Exception e) 
+                // JDA holds back requests that would hit a rate limit, so a slow edit means we're sending too many
+                if(System.currentTimeMillis() - start > INTERVAL)
+                    np.backoff = Math.min(MAX_BACKOFF, Math.max(INTERVAL, np.backoff * 2));
+                else
+                    np.backoff = 0;
+                np.failures = 0;
+                finish(np);
+            }, t -> 
             {
-                toRemove.add(guildId);
-            }
+                if(isGone(t) || ++np.failures >= MAX_FAILURES)
+                {
+                    lastNP.remove(guildId, np);
+                    return;
+                }
+                // most likely a problem on discord's side, so try again later, rendering it again
+                np.backoff = Math.min(MAX_BACKOFF, Math.max(INTERVAL, np.backoff * 2));
+                np.state = -1;
+                np.nextUpdate = System.currentTimeMillis() + INTERVAL + np.backoff;
+                finish(np);
+            });
+        } 
+        catch(Exception e) 
+        {
+            lastNP.remove(guildId, np);
         }
-        toRemove.forEach(id -> lastNP.remove(id));
     }
 
-    // "event"-based methods
-    public void onTrackUpdate(AudioTrack track)
+    /**
+     * @return whether an edit failed because the message can't be edited
+     *         anymore, rather than because of a temporary problem
+     */
+    private static boolean isGone(Throwable t)
+    {
+        if(!(t instanceof ErrorResponseException))
+            return false;
+        ErrorResponse response = ((ErrorResponseException) t).getErrorResponse();
+        return response == ErrorResponse.UNKNOWN_MESSAGE || response == ErrorResponse.UNKNOWN_CHANNEL
+                || response == ErrorResponse.MISSING_ACCESS || response == ErrorResponse.MISSING_PERMISSIONS;
+    }
+
+    private void updatePresence()
+    {
+        presencePending.set(false);
+        AudioTrack track = null;
+        Guild guild = getOnlyConnectedGuild(bot.getJDA().getGuilds());
+        if(guild != null && guild.getAudioManager().getSendingHandler() instanceof AudioHandler)
+            track = ((AudioHandler) guild.getAudioManager().getSendingHandler()).getPlayer().getPlayingTrack();
+        if(track == null)
+            bot.resetGame();
+        else
+        {
+            Activity activity = Activity.listening(track.getInfo().title);
+            if(!Objects.equals(bot.getJDA().getPresence().getActivity(), activity))
+                bot.getJDA().getPresence().setActivity(activity);
+        }
+    }
+    
+    /**
+     * Packs what a now playing message shows, apart from the elapsed time
+     * text, into one value
+     * 
+     * @param track       identifies the track
+     * @param position    the position in the track, in ms
+     * @param duration    the length of the track, in ms
+     * @param paused      whether the player is paused
+     * @param volumeLevel which volume icon is shown
+     * @return a value that is never 0, and only changes when the track, the
+     *         cell of the progress bar, pausing or the volume icon change
+     */
+    public static long getState(int track, long position, long duration, boolean paused, int volumeLevel)
+    {
+        int cell = duration <= 0 ? 0 : Math.max(0, Math.min(15, (int)((double)position/duration*12)));
+        return (long)track << 32
+                | 1L << 16
+                | cell << 8
+                | (paused ? PAUSED : 0)
+                | volumeLevel;
+    }
+    
+    /**
+     * @param state       the current state of the player, 0 if nothing is playing
+     * @param edited      the state the message was last edited with
+     * @param sinceEdited ms since the message was last edited
+     * @return whether the message should be edited: when its state changed,
+     *         nothing is playing anymore, or (every now and then) to move
+     *         the elapsed time along while playing
+     */
+    public static boolean needsEdit(long state, long edited, long sinceEdited)
     {
-        // update bot status if applicable
-        if(bot.getConfig().getSongInStatus())
+        if(state == 0 || state != edited)
+            return true;
+        return (state & PAUSED) == 0 && sinceEdited >= TIME_REFRESH;
+    }
+    
+    /**
+     * Looks at the audio connections themselves rather than keeping track of
+     * voice events, which are missed when the bot is kicked from a guild or
+     * its connections drop while the gateway reconnects
+     * 
+     * @param guilds the guilds to look through
+     * @return the only guild with a voice connection, or null if there are
+     *         none or several
+     */
+    public static Guild getOnlyConnectedGuild(List<Guild> guilds)
+    {
+        Guild connected = null;
+        for(Guild guild: guilds)
         {
-            if(track!=null && bot.getJDA().getGuilds().stream().filter(g -> g.getSelfMember().getVoiceState().inVoiceChannel()).count()<=1)
-                bot.getJDA().getPresence().setActivity(Activity.listening(track.getInfo().title));
-            else
-                bot.resetGame();
+            if(!guild.getAudioManager().isConnected())
+                continue;
+            if(connected != null)
+                return null;
+            connected = guild;
         }
+        return connected;
+    }
+    
+    private void schedulePresenceUpdate()
+    {
+        // the song is only shown while the bot is in a single voice channel; changes within
+        // the window end up in one presence update, which is rate limited by discord
+        if(bot.getConfig().getSongInStatus() && presencePending.compareAndSet(false, true))
+            bot.getUIScheduler().schedule(() -> updatePresence(), PRESENCE_DELAY, TimeUnit.MILLISECONDS);
+    }
+
+    // "event"-based methods
+    public void onTrackUpdate(long guildId)
+    {
+        schedulePresenceUpdate();
+        onPlayerUpdate(guildId);
+    }
+    
+    public void onVoiceUpdate(GuildVoiceUpdateEvent event)
+    {
+        if(event.getMember().getIdLong() == event.getJDA().getSelfUser().getIdLong())
+            schedulePresenceUpdate();
+    }
+    
+    public void onGuildLeave()
+    {
+        schedulePresenceUpdate();
+    }
+    
+    /**
+     * Checks the guild's now playing message on the next tick, unless its
+     * channel is backing off
+     * 
+     * @param guildId the guild whose player changed
+     */
+    public void onPlayerUpdate(long guildId)
+    {
+        NPMessage np = lastNP.get(guildId);
+        if(np!=null && np.backoff == 0)
+            schedule(np, System.currentTimeMillis());
     }
     
     public void onMessageDelete(Guild guild, long messageId)
     {
-        Pair<Long,Long> pair = lastNP.get(guild.getIdLong());
-        if(pair==null)
+        NPMessage np = lastNP.get(guild.getIdLong());
+        if(np==null)
             return;
-        if(pair.getValue() == messageId)
-            lastNP.remove(guild.getIdLong());
+        if(np.messageId == messageId)
+            lastNP.remove(guild.getIdLong(), np);
+    }
+    
+    private static class NPMessage
+    {
+        private final long guildId, channelId, messageId;
+        private volatile long state, lastEdit, nextUpdate, backoff;
+        private volatile int failures;
+        private volatile boolean pending;
+        
+        private NPMessage(long guildId, long channelId, long messageId)
+        {
+            this.guildId = guildId;
+            this.channelId = channelId;
+            this.messageId = messageId;
+        }
+    }
+    
+    private static class Check
+    {
+        private final NPMessage np;
+        private final long time;
+        
+        private Check(NPMessage np, long time)
+        {
+            this.np = np;
+            this.time = time;
+        }
     }
 }
@@ -17,7 +17,10 @@ package com.jagrosh.jmusicbot.audio;
 
 import com.dunctebot.sourcemanagers.DuncteBotSources;
 import com.jagrosh.jmusicbot.Bot;
+import com.jagrosh.jmusicbot.metrics.PlaybackMetrics;
+import com.jagrosh.jmusicbot.utils.OtherUtil;
 import com.sedmelluq.discord.lavaplayer.container.MediaContainerRegistry;
+import com.sedmelluq.discord.lavaplayer.player.AudioLoadResultHandler;
 import com.sedmelluq.discord.lavaplayer.player.AudioPlayer;
 import com.sedmelluq.discord.lavaplayer.player.DefaultAudioPlayerManager;
 import com.sedmelluq.discord.lavaplayer.source.AudioSourceManagers;
@@ -29,7 +32,12 @@ import com.sedmelluq.discord.lavaplayer.source.nico.NicoAudioSourceManager;
 import com.sedmelluq.discord.lavaplayer.source.soundcloud.SoundCloudAudioSourceManager;
 import com.sedmelluq.discord.lavaplayer.source.twitch.TwitchStreamAudioSourceManager;
 import com.sedmelluq.discord.lavaplayer.source.vimeo.VimeoAudioSourceManager;
+import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
+import com.sedmelluq.discord.lavaplayer.track.AudioPlaylist;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.playback.NonAllocatingAudioFrameBuffer;
 import dev.lavalink.youtube.YoutubeAudioSourceManager;
+import java.util.concurrent.Future;
 import net.dv8tion.jda.api.entities.Guild;
 
 /**
@@ -39,14 +47,30 @@ import net.dv8tion.jda.api.entities.Guild;
 public class PlayerManager extends DefaultAudioPlayerManager
 {
     private final Bot bot;
+    private final PlaybackMetrics metrics = new PlaybackMetrics();
+    private final TrackCache trackCache;
     
     public PlayerManager(Bot bot)
     {
         this.bot = bot;
+        String cacheFile = bot.getConfig().getTrackCacheFile();
+        this.trackCache = new TrackCache(this, bot.getConfig().getTrackCacheSize(), bot.getConfig().getTrackCacheTime(), 
+                bot.getConfig().getTrackCachePlaylistTime(), cacheFile.isEmpty() ? null : OtherUtil.getPath(cacheFile));
     }
     
     public void init()
     {
+        // frames are copied straight into each handler's send buffer, see AudioFrameSender
+        getConfiguration().setFrameBufferFactory(NonAllocatingAudioFrameBuffer::new);
+        setFrameBufferDuration(bot.getConfig().getFrameBufferDuration());
+
+        // registered first so that cached identifiers never reach the network
+        if(bot.getConfig().getTrackCacheSize() > 0)
+        {
+            trackCache.load();
+            registerSourceManager(trackCache);
+        }
+
         TransformativeAudioSourceManager.createTransforms(bot.getConfig().getTransforms()).forEach(t -> registerSourceManager(t));
 
         YoutubeAudioSourceManager yt = new YoutubeAudioSourceManager(true);
@@ -72,6 +96,38 @@ public class PlayerManager extends DefaultAudioPlayerManager
         return bot;
     }
     
+    public PlaybackMetrics getMetrics()
+    {
+        return metrics;
+    }
+    
+    public TrackCache getTrackCache()
+    {
+        return trackCache;
+    }
+    
+    @Override
+    public Future<Void> loadItemOrdered(Object orderingKey, String identifier, AudioLoadResultHandler resultHandler)
+    {
+        long guildId = orderingKey instanceof Guild ? ((Guild) orderingKey).getIdLong() : 0;
+        return loadItemOrdered(guildId, orderingKey, identifier, resultHandler);
+    }
+    
+    /**
+     * Loads an item for a guild, so the load time is counted for it even when
+     * the ordering key isn't the guild itself
+     * 
+     * @param guildId       the guild the load is for, or 0 if none
+     * @param orderingKey   the key loads are ordered by
+     * @param identifier    the identifier to load
+     * @param resultHandler the handler for the result
+     * @return a future for the load
+     */
+    public Future<Void> loadItemOrdered(long guildId, Object orderingKey, String identifier, AudioLoadResultHandler resultHandler)
+    {
+        return super.loadItemOrdered(orderingKey, identifier, new RecordingResultHandler(guildId, identifier, resultHandler));
+    }
+    
     public boolean hasHandler(Guild guild)
     {
         return guild.getAudioManager().getSendingHandler()!=null;
@@ -92,4 +148,60 @@ public class PlayerManager extends DefaultAudioPlayerManager
             handler = (AudioHandler) guild.getAudioManager().getSendingHandler();
         return handler;
     }
+    
+    /**
+     * Times every load and caches what the identifier resolved to
+     */
+    private class RecordingResultHandler implements AudioLoadResultHandler
+    {
+        private final long guildId;
+        private final String identifier;
+        private final AudioLoadResultHandler handler;
+        private final long start = System.nanoTime();
+        
+        private RecordingResultHandler(long guildId, String identifier, AudioLoadResultHandler handler)
+        {
+            this.guildId = guildId;
+            this.identifier = identifier;
+            this.handler = handler;
+        }
+        
+        private void record()
+        {
+            if(trackCache.takeHit())
+                metrics.recordCacheHit();
+            else
+                metrics.recordLoad(guildId, System.nanoTime() - start);
+        }
+
+        @Override
+        public void trackLoaded(AudioTrack track)
+        {
+            record();
+            trackCache.put(identifier, track);
+            handler.trackLoaded(track);
+        }
+
+        @Override
+        public void playlistLoaded(AudioPlaylist playlist)
+        {
+            record();
+            trackCache.put(identifier, playlist);
+            handler.playlistLoaded(playlist);
+        }
+
+        @Override
+        public void noMatches()
+        {
+            record();
+            handler.noMatches();
+        }
+
+        @Override
+        public void loadFailed(FriendlyException exception)
+        {
+            record();
+            handler.loadFailed(exception);
+        }
+    }
 }
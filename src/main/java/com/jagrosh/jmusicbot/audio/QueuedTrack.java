@@ -29,6 +29,7 @@ public class QueuedTrack implements Queueable
 {
     private final AudioTrack track;
     private final RequestMetadata requestMetadata;
+    private volatile Entry entry;
 
     public QueuedTrack(AudioTrack track, RequestMetadata rm)
     {
@@ -46,6 +47,12 @@ public class QueuedTrack implements Queueable
         return requestMetadata.getOwner();
     }
     
+    @Override
+    public long getDuration()
+    {
+        return track.getDuration();
+    }
+    
     public AudioTrack getTrack()
     {
         return track;
@@ -56,12 +63,38 @@ public class QueuedTrack implements Queueable
         return requestMetadata;
     }
 
+    /**
+     * The queue line for this track. It is built once and kept, since the
+     * track info never changes; it's only rebuilt if the track is given
+     * different request metadata.
+     */
     @Override
     public String toString() 
     {
-        String entry = "`[" + TimeUtil.formatTime(track.getDuration()) + "]` ";
+        RequestMetadata rm = track.getUserData(RequestMetadata.class);
+        Entry cached = entry;
+        if(cached != null && cached.metadata == rm)
+            return cached.text;
+        StringBuilder sb = new StringBuilder("`[").append(TimeUtil.formatTime(track.getDuration())).append("]` ");
         AudioTrackInfo trackInfo = track.getInfo();
-        entry = entry + (trackInfo.uri.startsWith("http") ? "[**" + trackInfo.title + "**]("+trackInfo.uri+")" : "**" + trackInfo.title + "**");
-        return entry + " - <@" + track.getUserData(RequestMetadata.class).getOwner() + ">";
+        if(trackInfo.uri.startsWith("http"))
+            sb.append("[**").append(trackInfo.title).append("**](").append(trackInfo.uri).append(")");
+        else
+            sb.append("**").append(trackInfo.title).append("**");
+        String text = sb.append(" - <@").append(rm.getOwner()).append(">").toString();
+        entry = new Entry(rm, text);
+        return text;
+    }
+    
+    private static class Entry
+    {
+        private final RequestMetadata metadata;
+        private final String text;
+        
+        private Entry(RequestMetadata metadata, String text)
+        {
+            this.metadata = metadata;
+            this.text = text;
+        }
     }
 }
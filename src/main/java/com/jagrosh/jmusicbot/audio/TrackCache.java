@@ -0,0 +1,521 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.audio;
+
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.source.AudioSourceManager;
+import com.sedmelluq.discord.lavaplayer.tools.io.MessageInput;
+import com.sedmelluq.discord.lavaplayer.tools.io.MessageOutput;
+import com.sedmelluq.discord.lavaplayer.track.AudioItem;
+import com.sedmelluq.discord.lavaplayer.track.AudioPlaylist;
+import com.sedmelluq.discord.lavaplayer.track.AudioReference;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrackInfo;
+import com.sedmelluq.discord.lavaplayer.track.BasicAudioPlaylist;
+import com.sedmelluq.discord.lavaplayer.track.DecodedTrackHolder;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Remembers what identifiers (urls, search queries, files) resolved to, so
+ * that loading the same thing again does not need another network lookup.
+ * Results are kept in lavaplayer's encoded track format and decoded into
+ * fresh tracks on every hit. The cache is bounded by the total number of
+ * cached tracks and entries expire after a fixed time, which is much shorter
+ * for playlists and searches, since what they resolve to keeps changing.
+ *
+ * It is registered as the first source manager, so hits are answered on the
+ * player manager's loader threads and keep the ordering of ordered loads.
+ * 
+ * When given a file, every new single track entry is also appended to it and
+ * the file is read back on startup, so a restart doesn't have to resolve every default
+ * playlist over the network again. The file is compacted on startup and
+ * whenever it holds too many outdated records.
+ */
+public class TrackCache implements AudioSourceManager
+{
+    private final static Logger LOG = LoggerFactory.getLogger(TrackCache.class);
+    private final static int FILE_MAGIC = 0x4A4D5443, FILE_VERSION = 1;
+    private final static int MIN_COMPACT_RECORDS = 1000, MAX_PERSISTED_NAME = 1000;
+    private final static int MAX_TRACK_BYTES = 1 << 20; // encoded tracks are a few hundred bytes
+    
+    private final AudioPlayerManager manager;
+    private final int maxTracks;
+    private final long expireMillis, playlistExpireMillis;
+    private final Path file;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Object fileLock = new Object();
+    private final ThreadLocal<Boolean> hit = new ThreadLocal<>();
+    private DataOutputStream log;
+    private int logRecords = 0;
+    private int tracks = 0;
+    
+    /**
+     * @param manager    the manager used to encode and decode tracks
+     * @param maxTracks  the maximum number of tracks to keep, over all entries
+     * @param expireTime how many seconds a single track entry stays valid
+     * @param playlistExpireTime how many seconds a playlist or search entry
+     *                   stays valid, 0 to not cache those
+     * @param file       the file to persist single track entries to, or null
+     *                   to only keep them in memory
+     */
+    public TrackCache(AudioPlayerManager manager, int maxTracks, long expireTime, long playlistExpireTime, Path file)
+    {
+        this.manager = manager;
+        this.maxTracks = maxTracks;
+        this.expireMillis = expireTime * 1000;
+        this.playlistExpireMillis = playlistExpireTime * 1000;
+        this.file = file;
+    }
+    
+    /**
+     * Reads the entries that are still valid from the cache file, compacts
+     * it and opens it for appending new entries
+     */
+    public void load()
+    {
+        if(file == null || maxTracks <= 0)
+            return;
+        int read = 0;
+        if(Files.exists(file))
+        {
+            long now = System.currentTimeMillis();
+            try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file))))
+            {
+                long fileSize = Files.size(file);
+                if(in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION)
+                    throw new IOException("Not a track cache file");
+                while(true)
+                {
+                    String identifier;
+                    try
+                    {
+                        identifier = in.readUTF();
+                    }
+                    catch(EOFException ex)
+                    {
+                        break;
+                    }
+                    Entry entry = readEntry(in, fileSize);
+                    read++;
+                    // playlists are no longer persisted, but older files may have them
+                    if(entry.playlistName == null && entry.expires >= now)
+                        synchronized(this)
+                        {
+                            store(identifier, entry);
+                        }
+                }
+            }
+            catch(EOFException ex)
+            {
+                LOG.warn("Track cache file ends with an incomplete entry; it will be dropped");
+            }
+            catch(IOException | RuntimeException ex)
+            {
+                // the entries read so far are kept, the compaction below drops the rest of the file
+                LOG.warn("Failed to read track cache file after " + read + " records, the rest will be dropped: " + ex);
+            }
+        }
+        compact();
+        LOG.info("Loaded " + size() + " cached lookups (" + read + " records) from " + file.toAbsolutePath());
+    }
+    
+    /**
+     * Gets a fresh copy of what an identifier resolved to
+     * 
+     * @param identifier the identifier that was loaded
+     * @return a track or playlist, or null if nothing valid is cached
+     */
+    public AudioItem get(String identifier)
+    {
+        Entry entry;
+        synchronized(this)
+        {
+            entry = entries.get(identifier);
+            if(entry == null)
+                return null;
+            if(entry.expires < System.currentTimeMillis())
+            {
+                remove(identifier);
+                return null;
+            }
+        }
+        try
+        {
+            List<AudioTrack> decoded = new ArrayList<>(entry.tracks.size());
+            for(byte[] data: entry.tracks)
+                decoded.add(decode(data));
+            if(entry.playlistName == null)
+                return decoded.get(0);
+            return new BasicAudioPlaylist(entry.playlistName, decoded, 
+                    entry.selected < 0 ? null : decoded.get(entry.selected), entry.searchResult);
+        }
+        catch(IOException | RuntimeException ex)
+        {
+            LOG.warn("Dropping unreadable cache entry for '" + identifier + "': " + ex);
+            synchronized(this)
+            {
+                remove(identifier);
+            }
+            return null;
+        }
+    }
+    
+    /**
+     * Caches what an identifier resolved to, unless a valid entry already
+     * exists. Streams and items with tracks that can't be encoded are skipped.
+     * 
+     * @param identifier the identifier that was loaded
+     * @param item       the track or playlist it resolved to
+     */
+    public void put(String identifier, AudioItem item)
+    {
+        if(maxTracks <= 0 || identifier == null || isCached(identifier))
+            return;
+        Entry entry;
+        try
+        {
+            entry = encode(item);
+        }
+        catch(IOException | RuntimeException ex)
+        {
+            // some sources can't encode their tracks; those just aren't cached
+            return;
+        }
+        if(entry == null || entry.tracks.size() > maxTracks)
+            return;
+        synchronized(this)
+        {
+            if(isCached(identifier))
+                return;
+            store(identifier, entry);
+        }
+        append(identifier, entry);
+    }
+    
+    public synchronized void clear()
+    {
+        entries.clear();
+        tracks = 0;
+    }
+    
+    /**
+     * Closes the cache file; entries that are added afterwards are only kept
+     * in memory
+     */
+    public void close()
+    {
+        synchronized(fileLock)
+        {
+            if(log == null)
+                return;
+            try
+            {
+                log.close();
+            }
+            catch(IOException ignore) {}
+            log = null;
+        }
+    }
+    
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+    
+    public synchronized int getTrackCount()
+    {
+        return tracks;
+    }
+
+    @Override
+    public String getSourceName()
+    {
+        return "cache";
+    }
+
+    @Override
+    public AudioItem loadItem(AudioPlayerManager apm, AudioReference ar)
+    {
+        AudioItem item = ar.identifier == null ? null : get(ar.identifier);
+        if(item != null)
+            hit.set(Boolean.TRUE);
+        return item;
+    }
+    
+    /**
+     * Checks and clears whether the last load on this thread was answered
+     * from the cache. Result handlers run on the thread that did the load.
+     * 
+     * @return true if the item came from the cache
+     */
+    public boolean takeHit()
+    {
+        if(hit.get() == null)
+            return false;
+        hit.remove();
+        return true;
+    }
+
+    @Override
+    public boolean isTrackEncodable(AudioTrack track)
+    {
+        return false;
+    }
+
+    /**
+     * Never called by the player manager, since no track is encodable by
+     * this source: cached tracks keep the source manager they were first
+     * loaded with, and that one encodes them.
+     */
+    @Override
+    public void encodeTrack(AudioTrack track, DataOutput output) throws IOException
+    {
+        throw new IOException("Track cache does not encode tracks");
+    }
+
+    @Override
+    public AudioTrack decodeTrack(AudioTrackInfo trackInfo, DataInput input) throws IOException
+    {
+        return null;
+    }
+
+    @Override
+    public void shutdown()
+    {
+        close();
+    }
+    
+    // Private methods
+    private void store(String identifier, Entry entry)
+    {
+        remove(identifier);
+        entries.put(identifier, entry);
+        tracks += entry.tracks.size();
+        Iterator<Entry> it = entries.values().iterator();
+        while(tracks > maxTracks && it.hasNext())
+        {
+            tracks -= it.next().tracks.size();
+            it.remove();
+        }
+    }
+    
+    private void append(String identifier, Entry entry)
+    {
+        // keep well within the length limit of the modified utf-8 strings in the file
+        if(entry.playlistName != null || identifier.length() > MAX_PERSISTED_NAME)
+            return;
+        boolean full;
+        synchronized(fileLock)
+        {
+            if(log == null)
+                return;
+            try
+            {
+                writeEntry(log, identifier, entry);
+                log.flush();
+                logRecords++;
+            }
+            catch(IOException ex)
+            {
+                LOG.warn("Failed to write to track cache file, no longer persisting new entries: " + ex);
+                close();
+                return;
+            }
+            full = logRecords > Math.max(MIN_COMPACT_RECORDS, 2 * size());
+        }
+        if(full)
+            compact();
+    }
+    
+    /**
+     * Rewrites the cache file with only the current entries
+     */
+    private void compact()
+    {
+        List<Map.Entry<String, Entry>> snapshot;
+        synchronized(this)
+        {
+            snapshot = new ArrayList<>(entries.entrySet());
+        }
+        synchronized(fileLock)
+        {
+            close();
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            try
+            {
+                try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp))))
+                {
+                    out.writeInt(FILE_MAGIC);
+                    out.writeInt(FILE_VERSION);
+                    for(Map.Entry<String, Entry> e: snapshot)
+                        if(e.getValue().playlistName == null)
+                            writeEntry(out, e.getKey(), e.getValue());
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+                log = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.APPEND)));
+                logRecords = snapshot.size();
+            }
+            catch(IOException ex)
+            {
+                LOG.warn("Failed to write track cache file, cached lookups won't be kept after a restart: " + ex);
+            }
+        }
+    }
+    
+    private static void writeEntry(DataOutputStream out, String identifier, Entry entry) throws IOException
+    {
+        out.writeUTF(identifier);
+        out.writeLong(entry.expires);
+        out.writeBoolean(entry.playlistName != null);
+        if(entry.playlistName != null)
+        {
+            out.writeUTF(entry.playlistName);
+            out.writeInt(entry.selected);
+            out.writeBoolean(entry.searchResult);
+        }
+        out.writeInt(entry.tracks.size());
+        for(byte[] data: entry.tracks)
+        {
+            out.writeInt(data.length);
+            out.write(data);
+        }
+    }
+    
+    /**
+     * Reads an entry written by {@link #writeEntry}, checking every length
+     * against the size of the file, so a damaged file can't make it allocate
+     * huge (or negative) arrays
+     */
+    private static Entry readEntry(DataInputStream in, long fileSize) throws IOException
+    {
+        long expires = in.readLong();
+        String playlistName = null;
+        int selected = -1;
+        boolean searchResult = false;
+        if(in.readBoolean())
+        {
+            playlistName = in.readUTF();
+            selected = in.readInt();
+            searchResult = in.readBoolean();
+        }
+        int count = in.readInt();
+        if(count <= 0 || count > fileSize / 4 || selected >= count)
+            throw new IOException("Bad track count: " + count);
+        List<byte[]> tracks = new ArrayList<>(Math.min(count, 1024));
+        for(int i = 0; i < count; i++)
+        {
+            int length = in.readInt();
+            if(length < 0 || length > Math.min(fileSize, MAX_TRACK_BYTES))
+                throw new IOException("Bad track length: " + length);
+            byte[] data = new byte[length];
+            in.readFully(data);
+            tracks.add(data);
+        }
+        return new Entry(playlistName, selected, searchResult, tracks, expires);
+    }
+    
+    private synchronized boolean isCached(String identifier)
+    {
+        Entry entry = entries.get(identifier);
+        return entry != null && entry.expires >= System.currentTimeMillis();
+    }
+    
+    private void remove(String identifier)
+    {
+        Entry removed = entries.remove(identifier);
+        if(removed != null)
+            tracks -= removed.tracks.size();
+    }
+    
+    private Entry encode(AudioItem item) throws IOException
+    {
+        if(item instanceof AudioTrack)
+        {
+            AudioTrack track = (AudioTrack) item;
+            if(track.getInfo().isStream)
+                return null;
+            return new Entry(null, -1, false, Collections.singletonList(encode(track)), System.currentTimeMillis() + expireMillis);
+        }
+        if(item instanceof AudioPlaylist && playlistExpireMillis > 0)
+        {
+            AudioPlaylist playlist = (AudioPlaylist) item;
+            if(playlist.getTracks().isEmpty())
+                return null;
+            List<byte[]> encoded = new ArrayList<>(playlist.getTracks().size());
+            for(AudioTrack track: playlist.getTracks())
+            {
+                if(track.getInfo().isStream)
+                    return null;
+                encoded.add(encode(track));
+            }
+            int selected = playlist.getSelectedTrack() == null ? -1 : playlist.getTracks().indexOf(playlist.getSelectedTrack());
+            return new Entry(playlist.getName(), selected, playlist.isSearchResult(), encoded, System.currentTimeMillis() + playlistExpireMillis);
+        }
+        return null;
+    }
+    
+    private byte[] encode(AudioTrack track) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        manager.encodeTrack(new MessageOutput(out), track);
+        return out.toByteArray();
+    }
+    
+    private AudioTrack decode(byte[] data) throws IOException
+    {
+        DecodedTrackHolder holder = manager.decodeTrack(new MessageInput(new ByteArrayInputStream(data)));
+        if(holder == null || holder.decodedTrack == null)
+            throw new IOException("Track could not be decoded");
+        return holder.decodedTrack;
+    }
+    
+    private static class Entry
+    {
+        private final String playlistName;
+        private final int selected;
+        private final boolean searchResult;
+        private final List<byte[]> tracks;
+        private final long expires;
+        
+        private Entry(String playlistName, int selected, boolean searchResult, List<byte[]> tracks, long expires)
+        {
+            this.playlistName = playlistName;
+            this.selected = selected;
+            this.searchResult = searchResult;
+            this.tracks = tracks;
+            this.expires = expires;
+        }
+    }
+}
@@ -100,6 +100,7 @@ public class PlaynextCmd extends DJCommand
         @Override
         public void playlistLoaded(AudioPlaylist playlist)
         {
+            // only one track of a playlist is put at the front, so this doesn't need the bulk AudioHandler.addTracks
             AudioTrack single;
             if(playlist.getTracks().size()==1 || playlist.isSearchResult())
                 single = playlist.getSelectedTrack()==null ? playlist.getTracks().get(0) : playlist.getSelectedTrack();
@@ -32,6 +32,8 @@ import com.jagrosh.jmusicbot.commands.DJCommand;
 import com.jagrosh.jmusicbot.commands.MusicCommand;
 import com.jagrosh.jmusicbot.playlist.PlaylistLoader.Playlist;
 import com.jagrosh.jmusicbot.utils.FormatUtil;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.Message;
@@ -45,6 +47,7 @@ public class PlayCmd extends MusicCommand
 {
     private final static String LOAD = "\uD83D\uDCE5"; // 📥
     private final static String CANCEL = "\uD83D\uDEAB"; // 🚫
+    private final static long PROGRESS_INTERVAL = 2000;
     
     private final String loadingEmoji;
     
@@ -141,16 +144,13 @@ public class PlayCmd extends MusicCommand
         
         private int loadPlaylist(AudioPlaylist playlist, AudioTrack exclude)
         {
-            int[] count = {0};
+            List<QueuedTrack> tracks = new ArrayList<>();
             playlist.getTracks().stream().forEach((track) -> {
                 if(!bot.getConfig().isTooLong(track) && !track.equals(exclude))
-                {
-                    AudioHandler handler = (AudioHandler)event.getGuild().getAudioManager().getSendingHandler();
-                    handler.addTrack(new QueuedTrack(track, RequestMetadata.fromResultHandler(track, event)));
-                    count[0]++;
-                }
+                    tracks.add(new QueuedTrack(track, RequestMetadata.fromResultHandler(track, event)));
             });
-            return count[0];
+            AudioHandler handler = (AudioHandler)event.getGuild().getAudioManager().getSendingHandler();
+            return handler.addTracks(tracks);
         }
         
         @Override
@@ -236,26 +236,40 @@ public class PlayCmd extends MusicCommand
                 event.reply(event.getClient().getError()+" Please include a playlist name.");
                 return;
             }
-            Playlist playlist = bot.getPlaylistLoader().getPlaylist(event.getArgs());
-            if(playlist==null)
-            {
-                event.replyError("I could not find `"+event.getArgs()+".txt` in the Playlists folder.");
-                return;
-            }
-            event.getChannel().sendMessage(loadingEmoji+" Loading playlist **"+event.getArgs()+"**... ("+playlist.getItems().size()+" items)").queue(m -> 
+            bot.runCommandTask(event, () -> 
             {
-                AudioHandler handler = (AudioHandler)event.getGuild().getAudioManager().getSendingHandler();
-                playlist.loadTracks(bot.getPlayerManager(), (at)->handler.addTrack(new QueuedTrack(at, RequestMetadata.fromResultHandler(at, event))), () -> {
-                    StringBuilder builder = new StringBuilder(playlist.getTracks().isEmpty() 
-                            ? event.getClient().getWarning()+" No tracks were loaded!" 
-                            : event.getClient().getSuccess()+" Loaded **"+playlist.getTracks().size()+"** tracks!");
-                    if(!playlist.getErrors().isEmpty())
-                        builder.append("\nThe following tracks failed to load:");
-                    playlist.getErrors().forEach(err -> builder.append("\n`[").append(err.getIndex()+1).append("]` **").append(err.getItem()).append("**: ").append(err.getReason()));
-                    String str = builder.toString();
-                    if(str.length()>2000)
-                        str = str.substring(0,1994)+" (...)";
-                    m.editMessage(FormatUtil.filter(str)).queue();
+                Playlist playlist = bot.getPlaylistLoader().getPlaylist(event.getArgs());
+                if(playlist==null)
+                {
+                    event.replyError("I could not find `"+event.getArgs()+".txt` in the Playlists folder.");
+                    return;
+                }
+                event.getChannel().sendMessage(loadingEmoji+" Loading playlist **"+event.getArgs()+"**... ("+playlist.getItems().size()+" items)").queue(m -> 
+                {
+                    AudioHandler handler = (AudioHandler)event.getGuild().getAudioManager().getSendingHandler();
+                    long[] lastUpdate = {System.currentTimeMillis()};
+                    playlist.loadTracks(bot.getPlayerManager(), event.getGuild().getIdLong(), (at)->handler.addTrack(new QueuedTrack(at, RequestMetadata.fromResultHandler(at, event))), resolved -> 
+                    {
+                        // don't edit the message more often than discord allows
+                        long now = System.currentTimeMillis();
+                        if(resolved < playlist.getItems().size() && now - lastUpdate[0] >= PROGRESS_INTERVAL)
+                        {
+                            lastUpdate[0] = now;
+                            m.editMessage(FormatUtil.filter(loadingEmoji+" Loading playlist **"+event.getArgs()+"**... ("
+                                    +resolved+"/"+playlist.getItems().size()+" items)")).queue();
+                        }
+                    }, () -> {
+                        StringBuilder builder = new StringBuilder(playlist.getTracks().isEmpty() 
+                                ? event.getClient().getWarning()+" No tracks were loaded!" 
+                                : event.getClient().getSuccess()+" Loaded **"+playlist.getTracks().size()+"** tracks!");
+                        if(!playlist.getErrors().isEmpty())
+                            builder.append("\nThe following tracks failed to load:");
+                        playlist.getErrors().forEach(err -> builder.append("\n`[").append(err.getIndex()+1).append("]` **").append(err.getItem()).append("**: ").append(err.getReason()));
+                        String str = builder.toString();
+                        if(str.length()>2000)
+                            str = str.substring(0,1994)+" (...)";
+                        m.editMessage(FormatUtil.filter(str)).queue();
+                    });
                 });
             });
         }
@@ -40,24 +40,27 @@ public class PlaylistsCmd extends MusicCommand
     @Override
     public void doCommand(CommandEvent event) 
     {
-        if(!bot.getPlaylistLoader().folderExists())
-            bot.getPlaylistLoader().createFolder();
-        if(!bot.getPlaylistLoader().folderExists())
+        bot.runCommandTask(event, () -> 
         {
-            event.reply(event.getClient().getWarning()+" Playlists folder does not exist and could not be created!");
-            return;
-        }
-        List<String> list = bot.getPlaylistLoader().getPlaylistNames();
-        if(list==null)
-            event.reply(event.getClient().getError()+" Failed to load available playlists!");
-        else if(list.isEmpty())
-            event.reply(event.getClient().getWarning()+" There are no playlists in the Playlists folder!");
-        else
-        {
-            StringBuilder builder = new StringBuilder(event.getClient().getSuccess()+" Available playlists:\n");
-            list.forEach(str -> builder.append("`").append(str).append("` "));
-            builder.append("\nType `").append(event.getClient().getTextualPrefix()).append("play playlist <name>` to play a playlist");
-            event.reply(builder.toString());
-        }
+            if(!bot.getPlaylistLoader().folderExists())
+                bot.getPlaylistLoader().createFolder();
+            if(!bot.getPlaylistLoader().folderExists())
+            {
+                event.reply(event.getClient().getWarning()+" Playlists folder does not exist and could not be created!");
+                return;
+            }
+            List<String> list = bot.getPlaylistLoader().getPlaylistNames();
+            if(list==null)
+                event.reply(event.getClient().getError()+" Failed to load available playlists!");
+            else if(list.isEmpty())
+                event.reply(event.getClient().getWarning()+" There are no playlists in the Playlists folder!");
+            else
+            {
+                StringBuilder builder = new StringBuilder(event.getClient().getSuccess()+" Available playlists:\n");
+                list.forEach(str -> builder.append("`").append(str).append("` "));
+                builder.append("\nType `").append(event.getClient().getTextualPrefix()).append("play playlist <name>` to play a playlist");
+                event.reply(builder.toString());
+            }
+        });
     }
 }
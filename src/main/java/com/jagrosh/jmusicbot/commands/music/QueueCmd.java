@@ -15,10 +15,11 @@
  */
 package com.jagrosh.jmusicbot.commands.music;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 import com.jagrosh.jdautilities.command.CommandEvent;
-import com.jagrosh.jdautilities.menu.Paginator;
 import com.jagrosh.jmusicbot.Bot;
 import com.jagrosh.jmusicbot.audio.AudioHandler;
 import com.jagrosh.jmusicbot.audio.QueuedTrack;
@@ -27,6 +28,7 @@ import com.jagrosh.jmusicbot.settings.QueueType;
 import com.jagrosh.jmusicbot.settings.RepeatMode;
 import com.jagrosh.jmusicbot.settings.Settings;
 import com.jagrosh.jmusicbot.utils.FormatUtil;
+import com.jagrosh.jmusicbot.utils.LazyPaginator;
 import com.jagrosh.jmusicbot.utils.TimeUtil;
 import net.dv8tion.jda.api.MessageBuilder;
 import net.dv8tion.jda.api.Permission;
@@ -39,41 +41,33 @@ import net.dv8tion.jda.api.exceptions.PermissionException;
  */
 public class QueueCmd extends MusicCommand 
 {
-    private final Paginator.Builder builder;
-    
     public QueueCmd(Bot bot)
     {
         super(bot);
         this.name = "queue";
         this.help = "shows the current queue";
-        this.arguments = "[pagenum]";
+        this.arguments = "[pagenum|mine]";
         this.aliases = bot.getConfig().getAliases(this.name);
         this.bePlaying = true;
         this.botPermissions = new Permission[]{Permission.MESSAGE_ADD_REACTION,Permission.MESSAGE_EMBED_LINKS};
-        builder = new Paginator.Builder()
-                .setColumns(1)
-                .setFinalAction(m -> {try{m.clearReactions().queue();}catch(PermissionException ignore){}})
-                .setItemsPerPage(10)
-                .waitOnSinglePage(false)
-                .useNumberedItems(true)
-                .showPageNumbers(true)
-                .wrapPageEnds(true)
-                .setEventWaiter(bot.getWaiter())
-                .setTimeout(1, TimeUnit.MINUTES);
     }
 
     @Override
     public void doCommand(CommandEvent event)
     {
+        AudioHandler ah = (AudioHandler)event.getGuild().getAudioManager().getSendingHandler();
+        if(event.getArgs().equalsIgnoreCase("mine"))
+        {
+            showRequester(event, ah);
+            return;
+        }
         int pagenum = 1;
         try
         {
             pagenum = Integer.parseInt(event.getArgs());
         }
         catch(NumberFormatException ignore){}
-        AudioHandler ah = (AudioHandler)event.getGuild().getAudioManager().getSendingHandler();
-        List<QueuedTrack> list = ah.getQueue().getList();
-        if(list.isEmpty())
+        if(ah.getQueue().isEmpty())
         {
             Message nowp = ah.getNowPlaying(event.getJDA());
             Message nonowp = ah.getNoMusicPlaying(event.getJDA());
@@ -87,21 +81,51 @@ public class QueueCmd extends MusicCommand
             });
             return;
         }
-        String[] songs = new String[list.size()];
-        long total = 0;
-        for(int i=0; i<list.size(); i++)
+        Settings settings = event.getClient().getSettingsFor(event.getGuild());
+        // the queue can change while the menu is open, so the shown page is copied from it when it's shown
+        new LazyPaginator.Builder()
+                .setText((i1,i2) -> getQueueTitle(ah, event.getClient().getSuccess(), ah.getQueue().size(), ah.getQueue().getDuration(), settings.getRepeatMode(), settings.getQueueType()))
+                .setItems(() -> ah.getQueue().size(), (from, to) -> ah.getQueue().getRange(from, to).stream()
+                        .map(QueuedTrack::toString).collect(Collectors.toList()))
+                .setFinalAction(m -> {try{m.clearReactions().queue();}catch(PermissionException ignore){}})
+                .setItemsPerPage(10)
+                .setEventWaiter(bot.getWaiter())
+                .setTimeout(1, TimeUnit.MINUTES)
+                .setUsers(event.getAuthor())
+                .setColor(event.getSelfMember().getColor())
+                .build().paginate(event.getChannel(), pagenum);
+    }
+    
+    private void showRequester(CommandEvent event, AudioHandler ah)
+    {
+        long user = event.getAuthor().getIdLong();
+        List<QueuedTrack> entries = ah.getQueue().getEntries(user);
+        if(entries.isEmpty())
         {
-            total += list.get(i).getTrack().getDuration();
-            songs[i] = list.get(i).toString();
+            event.replyWarning("You don't have any songs in the queue!");
+            return;
         }
-        Settings settings = event.getClient().getSettingsFor(event.getGuild());
-        long fintotal = total;
-        builder.setText((i1,i2) -> getQueueTitle(ah, event.getClient().getSuccess(), songs.length, fintotal, settings.getRepeatMode(), settings.getQueueType()))
-                .setItems(songs)
+        // entries are numbered by where they are in the queue when the page is shown
+        new LazyPaginator.Builder()
+                .setText((i1,i2) -> FormatUtil.filter(event.getClient().getSuccess()+" Your songs in the queue | "
+                        +ah.getQueue().getCount(user)+" entries | `"+TimeUtil.formatTime(ah.getQueue().getDuration(user))+"`"))
+                .setItems(entries::size, (from, to) -> 
+                {
+                    List<QueuedTrack> page = entries.subList(from, Math.min(to, entries.size()));
+                    int[] positions = ah.getQueue().indexesOf(page);
+                    List<String> items = new ArrayList<>(page.size());
+                    for(int i = 0; i < positions.length; i++)
+                        items.add(positions[i] < 0 ? "~~" + page.get(i) + "~~" : "`" + (positions[i] + 1) + ".` " + page.get(i));
+                    return items;
+                })
+                .useNumberedItems(false)
+                .setFinalAction(m -> {try{m.clearReactions().queue();}catch(PermissionException ignore){}})
+                .setItemsPerPage(10)
+                .setEventWaiter(bot.getWaiter())
+                .setTimeout(1, TimeUnit.MINUTES)
                 .setUsers(event.getAuthor())
                 .setColor(event.getSelfMember().getColor())
-                ;
-        builder.build().paginate(event.getChannel(), pagenum);
+                .build().paginate(event.getChannel(), 1);
     }
     
     private String getQueueTitle(AudioHandler ah, String success, int songslength, long total, RepeatMode repeatmode, QueueType queueType)
@@ -18,6 +18,7 @@ package com.jagrosh.jmusicbot.commands.music;
 import com.jagrosh.jdautilities.command.CommandEvent;
 import com.jagrosh.jmusicbot.Bot;
 import com.jagrosh.jmusicbot.audio.AudioHandler;
+import com.jagrosh.jmusicbot.commands.DJCommand;
 import com.jagrosh.jmusicbot.commands.MusicCommand;
 
 /**
@@ -31,6 +32,7 @@ public class ShuffleCmd extends MusicCommand
         super(bot);
         this.name = "shuffle";
         this.help = "shuffles songs you have added";
+        this.arguments = "[all]";
         this.aliases = bot.getConfig().getAliases(this.name);
         this.beListening = true;
         this.bePlaying = true;
@@ -40,6 +42,17 @@ public class ShuffleCmd extends MusicCommand
     public void doCommand(CommandEvent event) 
     {
         AudioHandler handler = (AudioHandler)event.getGuild().getAudioManager().getSendingHandler();
+        if(event.getArgs().equalsIgnoreCase("all"))
+        {
+            if(!DJCommand.checkDJPermission(event))
+            {
+                event.replyError("Only DJs can shuffle the whole queue!");
+                return;
+            }
+            handler.getQueue().shuffleAll();
+            event.replySuccess("You successfully shuffled all "+handler.getQueue().size()+" entries.");
+            return;
+        }
         int s = handler.getQueue().shuffle(event.getAuthor().getIdLong());
         switch (s) 
         {
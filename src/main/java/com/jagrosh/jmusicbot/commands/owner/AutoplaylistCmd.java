@@ -54,15 +54,19 @@ public class AutoplaylistCmd extends OwnerCommand
             return;
         }
         String pname = event.getArgs().replaceAll("\\s+", "_");
-        if(bot.getPlaylistLoader().getPlaylist(pname)==null)
+        // reads the playlist file
+        bot.runCommandTask(event, () -> 
         {
-            event.reply(event.getClient().getError()+" Could not find `"+pname+".txt`!");
-        }
-        else
-        {
-            Settings settings = event.getClient().getSettingsFor(event.getGuild());
-            settings.setDefaultPlaylist(pname);
-            event.reply(event.getClient().getSuccess()+" The default playlist for **"+event.getGuild().getName()+"** is now `"+pname+"`");
-        }
+            if(bot.getPlaylistLoader().getPlaylist(pname)==null)
+            {
+                event.reply(event.getClient().getError()+" Could not find `"+pname+".txt`!");
+            }
+            else
+            {
+                Settings settings = event.getClient().getSettingsFor(event.getGuild());
+                settings.setDefaultPlaylist(pname);
+                event.reply(event.getClient().getSuccess()+" The default playlist for **"+event.getGuild().getName()+"** is now `"+pname+"`");
+            }
+        });
     }
 }
@@ -18,8 +18,12 @@ package com.jagrosh.jmusicbot.commands.owner;
 import com.jagrosh.jdautilities.command.CommandEvent;
 import com.jagrosh.jdautilities.commons.JDAUtilitiesInfo;
 import com.jagrosh.jmusicbot.Bot;
+import com.jagrosh.jmusicbot.audio.AudioFrameSender;
 import com.jagrosh.jmusicbot.commands.OwnerCommand;
+import com.jagrosh.jmusicbot.metrics.LoadTimer;
+import com.jagrosh.jmusicbot.utils.MonitoredScheduler;
 import com.jagrosh.jmusicbot.utils.OtherUtil;
+import com.jagrosh.jmusicbot.utils.TimeUtil;
 import com.sedmelluq.discord.lavaplayer.tools.PlayerLibrary;
 import net.dv8tion.jda.api.JDAInfo;
 import net.dv8tion.jda.api.Permission;
@@ -58,6 +62,7 @@ public class DebugCmd extends OwnerCommand
                 .append("\n  Prefix = ").append(bot.getConfig().getPrefix())
                 .append("\n  AltPrefix = ").append(bot.getConfig().getAltPrefix())
                 .append("\n  MaxSeconds = ").append(bot.getConfig().getMaxSeconds())
+                .append("\n  FrameBuffer = ").append(bot.getConfig().getFrameBufferDuration())
                 .append("\n  NPImages = ").append(bot.getConfig().useNPImages())
                 .append("\n  SongInStatus = ").append(bot.getConfig().getSongInStatus())
                 .append("\n  StayInChannel = ").append(bot.getConfig().getStay())
@@ -72,6 +77,24 @@ public class DebugCmd extends OwnerCommand
         sb.append("\n\nRuntime Information:")
                 .append("\n  Total Memory = ").append(total)
                 .append("\n  Used Memory = ").append(used);
+        AudioFrameSender.Totals frames = bot.getPlayerManager().getMetrics().getFrameTotals();
+        sb.append("\n\nAudio Information:")
+                .append("\n  Frames Sent = ").append(frames.getFramesSent())
+                .append("\n  Underruns = ").append(frames.getUnderruns())
+                .append("\n  Frames Missed = ").append(frames.getFramesMissed());
+        sb.append("\n\nScheduler Information:");
+        for(MonitoredScheduler scheduler: bot.getSchedulers())
+        {
+            LoadTimer delays = scheduler.getDelays(), runs = scheduler.getRuns();
+            sb.append("\n  ").append(scheduler.getName()).append(":")
+                    .append("\n    Queued = ").append(scheduler.getQueueDepth())
+                    .append(", Active = ").append(scheduler.getActiveCount())
+                    .append(", Tasks = ").append(runs.getCount())
+                    .append("\n    Avg Delay = ").append(TimeUtil.average(delays.getTotalNanos(), delays.getCount()) / 1000000).append("ms")
+                    .append(", Max Delay = ").append(delays.getMaxNanos() / 1000000).append("ms")
+                    .append("\n    Avg Run = ").append(TimeUtil.average(runs.getTotalNanos(), runs.getCount()) / 1000000).append("ms")
+                    .append(", Max Run = ").append(runs.getMaxNanos() / 1000000).append("ms");
+        }
         sb.append("\n\nDiscord Information:")
                 .append("\n  ID = ").append(event.getJDA().getSelfUser().getId())
                 .append("\n  Guilds = ").append(event.getJDA().getGuildCache().size())
@@ -0,0 +1,89 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.commands.owner;
+
+import com.jagrosh.jdautilities.command.CommandEvent;
+import com.jagrosh.jmusicbot.Bot;
+import com.jagrosh.jmusicbot.audio.AudioFrameSender;
+import com.jagrosh.jmusicbot.commands.OwnerCommand;
+import com.jagrosh.jmusicbot.metrics.LoadTimer;
+import com.jagrosh.jmusicbot.metrics.PlaybackMetrics;
+import com.jagrosh.jmusicbot.metrics.PlaybackMetrics.GuildStats;
+import com.jagrosh.jmusicbot.utils.TimeUtil;
+import java.util.Comparator;
+import java.util.List;
+import net.dv8tion.jda.api.Permission;
+import net.dv8tion.jda.api.entities.ChannelType;
+
+public class MetricsCmd extends OwnerCommand
+{
+    private final static int MAX_GUILDS = 25;
+    
+    private final Bot bot;
+    
+    public MetricsCmd(Bot bot)
+    {
+        this.bot = bot;
+        this.name = "metrics";
+        this.help = "shows playback health metrics";
+        this.aliases = bot.getConfig().getAliases(this.name);
+        this.guildOnly = false;
+    }
+
+    @Override
+    protected void execute(CommandEvent event)
+    {
+        PlaybackMetrics metrics = bot.getPlayerManager().getMetrics();
+        List<GuildStats> guilds = metrics.getGuildStats(event.getJDA());
+        guilds.sort(Comparator.comparingLong((GuildStats g) -> g.underruns).thenComparingLong(g -> g.misses).reversed());
+        AudioFrameSender.Totals totals = metrics.getFrameTotals();
+        long frames = totals.getFramesSent(), misses = totals.getMisses(), provideNanos = totals.getProvideNanos();
+        LoadTimer loads = metrics.getLoads();
+        StringBuilder sb = new StringBuilder();
+        sb.append("```\nPlayback:")
+                .append("\n  Players = ").append(guilds.size())
+                .append("\n  Playing = ").append(guilds.stream().filter(g -> g.playing).count())
+                .append("\n  Frames Sent = ").append(frames)
+                .append("\n  Bytes Sent = ").append(totals.getBytesSent())
+                .append("\n  Misses = ").append(misses)
+                .append("\n  Underruns = ").append(totals.getUnderruns())
+                .append("\n  Frames Missed = ").append(totals.getFramesMissed())
+                .append("\n  Avg Provide = ").append(TimeUtil.average(provideNanos, frames + misses) / 1000).append("us");
+        sb.append("\n\nTrack Loads:")
+                .append("\n  Count = ").append(loads.getCount())
+                .append("\n  Avg = ").append(TimeUtil.average(loads.getTotalNanos(), loads.getCount()) / 1000000).append("ms")
+                .append("\n  Max = ").append(loads.getMaxNanos() / 1000000).append("ms")
+                .append("\n  Cache Hits = ").append(metrics.getCacheHits());
+        sb.append("\n\nGuilds (by underruns):");
+        for(GuildStats g: guilds.subList(0, Math.min(MAX_GUILDS, guilds.size())))
+            sb.append("\n  ").append(g.name).append(" (").append(g.guildId).append(")")
+                    .append(g.playing ? " [playing]" : "")
+                    .append("\n    frames=").append(g.framesSent)
+                    .append(" bitrate=").append(g.getBitrate()).append("kbps")
+                    .append(" misses=").append(g.misses)
+                    .append(" underruns=").append(g.underruns)
+                    .append(" missed=").append(g.framesMissed)
+                    .append(" loads=").append(g.loads)
+                    .append(" avgload=").append(TimeUtil.average(g.loadNanos, g.loads) / 1000000).append("ms");
+        if(guilds.size() > MAX_GUILDS)
+            sb.append("\n  ... and ").append(guilds.size() - MAX_GUILDS).append(" more");
+        sb.append("\n```");
+        
+        if(event.isFromType(ChannelType.PRIVATE) 
+                || event.getSelfMember().hasPermission(event.getTextChannel(), Permission.MESSAGE_ATTACH_FILES))
+            event.getChannel().sendFile(sb.toString().getBytes(), "metrics.txt").queue();
+        else
+            event.reply("Metrics: " + sb.toString());
+    }
+}
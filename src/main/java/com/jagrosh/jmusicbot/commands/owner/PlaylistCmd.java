@@ -71,26 +71,29 @@ public class PlaylistCmd extends OwnerCommand
         @Override
         protected void execute(CommandEvent event) 
         {
-            String pname = event.getArgs().replaceAll("\\s+", "_");
-            pname = pname.replaceAll("[*?|\\/\":<>]", "");
-            if(pname == null || pname.isEmpty()) 
+            bot.runCommandTask(event, () -> 
             {
-                event.replyError("Please provide a name for the playlist!");
-            } 
-            else if(bot.getPlaylistLoader().getPlaylist(pname) == null)
-            {
-                try
+                String pname = event.getArgs().replaceAll("\\s+", "_");
+                pname = pname.replaceAll("[*?|\\/\":<>]", "");
+                if(pname == null || pname.isEmpty()) 
                 {
-                    bot.getPlaylistLoader().createPlaylist(pname);
-                    event.reply(event.getClient().getSuccess()+" Successfully created playlist `"+pname+"`!");
-                }
-                catch(IOException e)
+                    event.replyError("Please provide a name for the playlist!");
+                } 
+                else if(bot.getPlaylistLoader().getPlaylist(pname) == null)
                 {
-                    event.reply(event.getClient().getError()+" I was unable to create the playlist: "+e.getLocalizedMessage());
+                    try
+                    {
+                        bot.getPlaylistLoader().createPlaylist(pname);
+                        event.reply(event.getClient().getSuccess()+" Successfully created playlist `"+pname+"`!");
+                    }
+                    catch(IOException e)
+                    {
+                        event.reply(event.getClient().getError()+" I was unable to create the playlist: "+e.getLocalizedMessage());
+                    }
                 }
-            }
-            else
-                event.reply(event.getClient().getError()+" Playlist `"+pname+"` already exists!");
+                else
+                    event.reply(event.getClient().getError()+" Playlist `"+pname+"` already exists!");
+            });
         }
     }
     
@@ -108,21 +111,24 @@ public class PlaylistCmd extends OwnerCommand
         @Override
         protected void execute(CommandEvent event) 
         {
-            String pname = event.getArgs().replaceAll("\\s+", "_");
-            if(bot.getPlaylistLoader().getPlaylist(pname)==null)
-                event.reply(event.getClient().getError()+" Playlist `"+pname+"` doesn't exist!");
-            else
+            bot.runCommandTask(event, () -> 
             {
-                try
-                {
-                    bot.getPlaylistLoader().deletePlaylist(pname);
-                    event.reply(event.getClient().getSuccess()+" Successfully deleted playlist `"+pname+"`!");
-                }
-                catch(IOException e)
+                String pname = event.getArgs().replaceAll("\\s+", "_");
+                if(bot.getPlaylistLoader().getPlaylist(pname)==null)
+                    event.reply(event.getClient().getError()+" Playlist `"+pname+"` doesn't exist!");
+                else
                 {
-                    event.reply(event.getClient().getError()+" I was unable to delete the playlist: "+e.getLocalizedMessage());
+                    try
+                    {
+                        bot.getPlaylistLoader().deletePlaylist(pname);
+                        event.reply(event.getClient().getSuccess()+" Successfully deleted playlist `"+pname+"`!");
+                    }
+                    catch(IOException e)
+                    {
+                        event.reply(event.getClient().getError()+" I was unable to delete the playlist: "+e.getLocalizedMessage());
+                    }
                 }
-            }
+            });
         }
     }
     
@@ -140,38 +146,41 @@ public class PlaylistCmd extends OwnerCommand
         @Override
         protected void execute(CommandEvent event) 
         {
-            String[] parts = event.getArgs().split("\\s+", 2);
-            if(parts.length<2)
-            {
-                event.reply(event.getClient().getError()+" Please include a playlist name and URLs to add!");
-                return;
-            }
-            String pname = parts[0];
-            Playlist playlist = bot.getPlaylistLoader().getPlaylist(pname);
-            if(playlist==null)
-                event.reply(event.getClient().getError()+" Playlist `"+pname+"` doesn't exist!");
-            else
+            bot.runCommandTask(event, () -> 
             {
-                StringBuilder builder = new StringBuilder();
-                playlist.getItems().forEach(item -> builder.append("\r\n").append(item));
-                String[] urls = parts[1].split("\\|");
-                for(String url: urls)
-                {
-                    String u = url.trim();
-                    if(u.startsWith("<") && u.endsWith(">"))
-                        u = u.substring(1, u.length()-1);
-                    builder.append("\r\n").append(u);
-                }
-                try
+                String[] parts = event.getArgs().split("\\s+", 2);
+                if(parts.length<2)
                 {
-                    bot.getPlaylistLoader().writePlaylist(pname, builder.toString());
-                    event.reply(event.getClient().getSuccess()+" Successfully added "+urls.length+" items to playlist `"+pname+"`!");
+                    event.reply(event.getClient().getError()+" Please include a playlist name and URLs to add!");
+                    return;
                 }
-                catch(IOException e)
+                String pname = parts[0];
+                Playlist playlist = bot.getPlaylistLoader().getPlaylist(pname);
+                if(playlist==null)
+                    event.reply(event.getClient().getError()+" Playlist `"+pname+"` doesn't exist!");
+                else
                 {
-                    event.reply(event.getClient().getError()+" I was unable to append to the playlist: "+e.getLocalizedMessage());
+                    StringBuilder builder = new StringBuilder();
+                    playlist.getItems().forEach(item -> builder.append("\r\n").append(item));
+                    String[] urls = parts[1].split("\\|");
+                    for(String url: urls)
+                    {
+                        String u = url.trim();
+                        if(u.startsWith("<") && u.endsWith(">"))
+                            u = u.substring(1, u.length()-1);
+                        builder.append("\r\n").append(u);
+                    }
+                    try
+                    {
+                        bot.getPlaylistLoader().writePlaylist(pname, builder.toString());
+                        event.reply(event.getClient().getSuccess()+" Successfully added "+urls.length+" items to playlist `"+pname+"`!");
+                    }
+                    catch(IOException e)
+                    {
+                        event.reply(event.getClient().getError()+" I was unable to append to the playlist: "+e.getLocalizedMessage());
+                    }
                 }
-            }
+            });
         }
     }
     
@@ -200,24 +209,27 @@ public class PlaylistCmd extends OwnerCommand
         @Override
         protected void execute(CommandEvent event) 
         {
-            if(!bot.getPlaylistLoader().folderExists())
-                bot.getPlaylistLoader().createFolder();
-            if(!bot.getPlaylistLoader().folderExists())
-            {
-                event.reply(event.getClient().getWarning()+" Playlists folder does not exist and could not be created!");
-                return;
-            }
-            List<String> list = bot.getPlaylistLoader().getPlaylistNames();
-            if(list==null)
-                event.reply(event.getClient().getError()+" Failed to load available playlists!");
-            else if(list.isEmpty())
-                event.reply(event.getClient().getWarning()+" There are no playlists in the Playlists folder!");
-            else
+            bot.runCommandTask(event, () -> 
             {
-                StringBuilder builder = new StringBuilder(event.getClient().getSuccess()+" Available playlists:\n");
-                list.forEach(str -> builder.append("`").append(str).append("` "));
-                event.reply(builder.toString());
-            }
+                if(!bot.getPlaylistLoader().folderExists())
+                    bot.getPlaylistLoader().createFolder();
+                if(!bot.getPlaylistLoader().folderExists())
+                {
+                    event.reply(event.getClient().getWarning()+" Playlists folder does not exist and could not be created!");
+                    return;
+                }
+                List<String> list = bot.getPlaylistLoader().getPlaylistNames();
+                if(list==null)
+                    event.reply(event.getClient().getError()+" Failed to load available playlists!");
+                else if(list.isEmpty())
+                    event.reply(event.getClient().getWarning()+" There are no playlists in the Playlists folder!");
+                else
+                {
+                    StringBuilder builder = new StringBuilder(event.getClient().getSuccess()+" Available playlists:\n");
+                    list.forEach(str -> builder.append("`").append(str).append("` "));
+                    event.reply(builder.toString());
+                }
+            });
         }
     }
 }
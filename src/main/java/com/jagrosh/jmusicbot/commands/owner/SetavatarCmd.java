@@ -29,8 +29,11 @@ import net.dv8tion.jda.api.entities.Icon;
  */
 public class SetavatarCmd extends OwnerCommand 
 {
+    private final Bot bot;
+    
     public SetavatarCmd(Bot bot)
     {
+        this.bot = bot;
         this.name = "setavatar";
         this.help = "sets the avatar of the bot";
         this.arguments = "<url>";
@@ -49,20 +52,24 @@ public class SetavatarCmd extends OwnerCommand
                 url = null;
         else
             url = event.getArgs();
-        InputStream s = OtherUtil.imageFromUrl(url);
-        if(s==null)
-        {
-            event.reply(event.getClient().getError()+" Invalid or missing URL");
-        }
-        else
+        // downloading the image can take a while
+        bot.runCommandTask(event, () -> 
         {
-            try {
-            event.getSelfUser().getManager().setAvatar(Icon.from(s)).queue(
-                    v -> event.reply(event.getClient().getSuccess()+" Successfully changed avatar."), 
-                    t -> event.reply(event.getClient().getError()+" Failed to set avatar."));
-            } catch(IOException e) {
-                event.reply(event.getClient().getError()+" Could not load from provided URL.");
+            InputStream s = OtherUtil.imageFromUrl(url);
+            if(s==null)
+            {
+                event.reply(event.getClient().getError()+" Invalid or missing URL");
+            }
+            else
+            {
+                try {
+                event.getSelfUser().getManager().setAvatar(Icon.from(s)).queue(
+                        v -> event.reply(event.getClient().getSuccess()+" Successfully changed avatar."), 
+                        t -> event.reply(event.getClient().getError()+" Failed to set avatar."));
+                } catch(IOException e) {
+                    event.reply(event.getClient().getError()+" Could not load from provided URL.");
+                }
             }
-        }
+        });
     }
 }
@@ -26,8 +26,11 @@ import net.dv8tion.jda.api.exceptions.RateLimitedException;
  */
 public class SetnameCmd extends OwnerCommand
 {
+    private final Bot bot;
+    
     public SetnameCmd(Bot bot)
     {
+        this.bot = bot;
         this.name = "setname";
         this.help = "sets the name of the bot";
         this.arguments = "<name>";
@@ -38,19 +41,23 @@ public class SetnameCmd extends OwnerCommand
     @Override
     protected void execute(CommandEvent event) 
     {
-        try 
-        {
-            String oldname = event.getSelfUser().getName();
-            event.getSelfUser().getManager().setName(event.getArgs()).complete(false);
-            event.reply(event.getClient().getSuccess()+" Name changed from `"+oldname+"` to `"+event.getArgs()+"`");
-        } 
-        catch(RateLimitedException e) 
-        {
-            event.reply(event.getClient().getError()+" Name can only be changed twice per hour!");
-        }
-        catch(Exception e) 
+        // complete() waits for discord, so it's kept off the event thread
+        bot.runCommandTask(event, () -> 
         {
-            event.reply(event.getClient().getError()+" That name is not valid!");
-        }
+            try 
+            {
+                String oldname = event.getSelfUser().getName();
+                event.getSelfUser().getManager().setName(event.getArgs()).complete(false);
+                event.reply(event.getClient().getSuccess()+" Name changed from `"+oldname+"` to `"+event.getArgs()+"`");
+            } 
+            catch(RateLimitedException e) 
+            {
+                event.reply(event.getClient().getError()+" Name can only be changed twice per hour!");
+            }
+            catch(Exception e) 
+            {
+                event.reply(event.getClient().getError()+" That name is not valid!");
+            }
+        });
     }
 }
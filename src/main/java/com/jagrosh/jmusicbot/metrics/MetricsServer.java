@@ -0,0 +1,89 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.metrics;
+
+import com.jagrosh.jmusicbot.Bot;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serves {@link PlaybackMetrics} in the Prometheus text format at
+ * {@code http://localhost:<port>/metrics}. It only listens on the loopback
+ * interface.
+ */
+public class MetricsServer
+{
+    private final static Logger LOG = LoggerFactory.getLogger("Metrics");
+    private final Bot bot;
+    private HttpServer server;
+
+    public MetricsServer(Bot bot)
+    {
+        this.bot = bot;
+    }
+
+    public void start(int port)
+    {
+        try
+        {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+            server.createContext("/metrics", this::handle);
+            server.start();
+            LOG.info("Serving metrics at http://localhost:" + port + "/metrics");
+        }
+        catch(IOException ex)
+        {
+            LOG.warn("Failed to start metrics server on port " + port + ": " + ex);
+        }
+    }
+
+    public void stop()
+    {
+        if(server != null)
+            server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException
+    {
+        try
+        {
+            if(!"GET".equals(exchange.getRequestMethod()))
+            {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = bot.getJDA() == null
+                    ? new byte[0]
+                    : bot.getPlayerManager().getMetrics().toPrometheus(bot.getJDA()).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length == 0 ? -1 : body.length);
+            if(body.length > 0)
+                try(OutputStream out = exchange.getResponseBody())
+                {
+                    out.write(body);
+                }
+        }
+        finally
+        {
+            exchange.close();
+        }
+    }
+}
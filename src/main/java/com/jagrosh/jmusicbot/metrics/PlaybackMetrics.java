@@ -0,0 +1,211 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.metrics;
+
+import com.jagrosh.jmusicbot.audio.AudioFrameSender;
+import com.jagrosh.jmusicbot.audio.AudioHandler;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+
+/**
+ * Collects playback health per guild and for the whole bot: the frame
+ * counters of every {@link AudioFrameSender} plus how long track loads take.
+ * The bot-wide counters are kept separately from the guilds' ones, so they
+ * don't go down when a guild's player goes away.
+ */
+public class PlaybackMetrics
+{
+    private final AudioFrameSender.Totals frames = new AudioFrameSender.Totals();
+    private final LoadTimer loads = new LoadTimer();
+    private final LongAdder cacheHits = new LongAdder();
+    private final Map<Long, LoadTimer> guildLoads = new ConcurrentHashMap<>();
+
+    /**
+     * Records a finished track load that had to look the track up
+     *
+     * @param guildId the guild the load was for, or 0 if none
+     * @param nanos   how long the load took
+     */
+    public void recordLoad(long guildId, long nanos)
+    {
+        loads.record(nanos);
+        if(guildId != 0)
+            guildLoads.computeIfAbsent(guildId, id -> new LoadTimer()).record(nanos);
+    }
+
+    /**
+     * Records a load that was answered by the track cache; these are counted
+     * on their own, so they don't make the lookups look faster than they are
+     */
+    public void recordCacheHit()
+    {
+        cacheHits.increment();
+    }
+
+    /**
+     * Forgets the load times of a guild the bot left
+     *
+     * @param guildId the guild
+     */
+    public void removeGuild(long guildId)
+    {
+        guildLoads.remove(guildId);
+    }
+
+    public long getCacheHits()
+    {
+        return cacheHits.sum();
+    }
+
+    /**
+     * @param jda the JDA instance to read the guilds from
+     * @return a snapshot for every guild that has an audio handler
+     */
+    public List<GuildStats> getGuildStats(JDA jda)
+    {
+        List<GuildStats> list = new ArrayList<>();
+        for(Guild guild: jda.getGuilds())
+        {
+            if(guild.getAudioManager().getSendingHandler() instanceof AudioHandler)
+            {
+                AudioHandler handler = (AudioHandler) guild.getAudioManager().getSendingHandler();
+                list.add(new GuildStats(guild.getIdLong(), guild.getName(), handler.getFrameSender(), guildLoads.get(guild.getIdLong())));
+            }
+        }
+        return list;
+    }
+
+    /**
+     * @return the counters every guild's frame sender adds to
+     */
+    public AudioFrameSender.Totals getFrameTotals()
+    {
+        return frames;
+    }
+
+    public LoadTimer getLoads()
+    {
+        return loads;
+    }
+
+    /**
+     * Renders all metrics in the Prometheus text exposition format
+     *
+     * @param jda the JDA instance to read the guilds from
+     * @return the metrics page
+     */
+    public String toPrometheus(JDA jda)
+    {
+        List<GuildStats> guilds = getGuildStats(jda);
+        StringBuilder sb = new StringBuilder();
+        gauge(sb, "jmusicbot_guilds_with_player", "Guilds that have an audio player", guilds.size());
+        gauge(sb, "jmusicbot_guilds_playing", "Guilds currently sending audio", guilds.stream().filter(g -> g.playing).count());
+        counter(sb, "jmusicbot_frames_sent_total", "Opus frames sent to Discord", frames.getFramesSent());
+        counter(sb, "jmusicbot_bytes_sent_total", "Bytes of opus audio sent to Discord", frames.getBytesSent());
+        counter(sb, "jmusicbot_provide_misses_total", "Send attempts with no frame available", frames.getMisses());
+        counter(sb, "jmusicbot_underruns_total", "Times the frame buffer ran dry during playback", frames.getUnderruns());
+        counter(sb, "jmusicbot_underrun_frames_total", "Frames that could not be sent during underruns", frames.getFramesMissed());
+        counter(sb, "jmusicbot_provide_seconds_total", "Time spent pulling frames from players", seconds(frames.getProvideNanos()));
+        counter(sb, "jmusicbot_track_loads_total", "Finished track loads", loads.getCount());
+        counter(sb, "jmusicbot_track_load_seconds_total", "Time spent loading tracks", seconds(loads.getTotalNanos()));
+        gauge(sb, "jmusicbot_track_load_seconds_max", "Slowest track load", seconds(loads.getMaxNanos()));
+        counter(sb, "jmusicbot_track_cache_hits_total", "Track loads answered by the track cache", getCacheHits());
+
+        header(sb, "jmusicbot_guild_frames_sent_total", "Opus frames sent to Discord", "counter");
+        guilds.forEach(g -> sample(sb, "jmusicbot_guild_frames_sent_total", g, g.framesSent));
+        header(sb, "jmusicbot_guild_bytes_sent_total", "Bytes of opus audio sent to Discord", "counter");
+        guilds.forEach(g -> sample(sb, "jmusicbot_guild_bytes_sent_total", g, g.bytesSent));
+        header(sb, "jmusicbot_guild_provide_misses_total", "Send attempts with no frame available", "counter");
+        guilds.forEach(g -> sample(sb, "jmusicbot_guild_provide_misses_total", g, g.misses));
+        header(sb, "jmusicbot_guild_underruns_total", "Times the frame buffer ran dry during playback", "counter");
+        guilds.forEach(g -> sample(sb, "jmusicbot_guild_underruns_total", g, g.underruns));
+        header(sb, "jmusicbot_guild_underrun_frames_total", "Frames that could not be sent during underruns", "counter");
+        guilds.forEach(g -> sample(sb, "jmusicbot_guild_underrun_frames_total", g, g.framesMissed));
+        header(sb, "jmusicbot_guild_provide_seconds_total", "Time spent pulling frames from the player", "counter");
+        guilds.forEach(g -> sample(sb, "jmusicbot_guild_provide_seconds_total", g, seconds(g.provideNanos)));
+        header(sb, "jmusicbot_guild_track_loads_total", "Finished track loads", "counter");
+        guilds.forEach(g -> sample(sb, "jmusicbot_guild_track_loads_total", g, g.loads));
+        header(sb, "jmusicbot_guild_track_load_seconds_total", "Time spent loading tracks", "counter");
+        guilds.forEach(g -> sample(sb, "jmusicbot_guild_track_load_seconds_total", g, seconds(g.loadNanos)));
+        return sb.toString();
+    }
+
+    private static void counter(StringBuilder sb, String name, String help, Number value)
+    {
+        header(sb, name, help, "counter");
+        sb.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void gauge(StringBuilder sb, String name, String help, Number value)
+    {
+        header(sb, name, help, "gauge");
+        sb.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void header(StringBuilder sb, String name, String help, String type)
+    {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder sb, String name, GuildStats guild, Number value)
+    {
+        sb.append(name).append("{guild=\"").append(guild.guildId).append("\"} ").append(value).append('\n');
+    }
+
+    private static double seconds(long nanos)
+    {
+        return nanos / 1e9;
+    }
+
+    /**
+     * A snapshot of one guild's playback health
+     */
+    public static class GuildStats
+    {
+        public final long guildId;
+        public final String name;
+        public final boolean playing;
+        public final long framesSent, bytesSent, misses, underruns, framesMissed, provideNanos, loads, loadNanos;
+
+        private GuildStats(long guildId, String name, AudioFrameSender sender, LoadTimer loads)
+        {
+            this.guildId = guildId;
+            this.name = name;
+            this.playing = sender.isFlowing();
+            this.framesSent = sender.getFramesSent();
+            this.bytesSent = sender.getBytesSent();
+            this.misses = sender.getMisses();
+            this.underruns = sender.getUnderruns();
+            this.framesMissed = sender.getFramesMissed();
+            this.provideNanos = sender.getProvideNanos();
+            this.loads = loads == null ? 0 : loads.getCount();
+            this.loadNanos = loads == null ? 0 : loads.getTotalNanos();
+        }
+
+        /**
+         * @return the average bitrate of the audio sent, in kbps
+         */
+        public long getBitrate()
+        {
+            // every frame is 20ms of audio, so this is bits per ms
+            return framesSent == 0 ? 0 : bytesSent * 8 / (framesSent * 20);
+        }
+    }
+}
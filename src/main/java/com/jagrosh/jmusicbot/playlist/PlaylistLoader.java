@@ -16,9 +16,10 @@
 package com.jagrosh.jmusicbot.playlist;
 
 import com.jagrosh.jmusicbot.BotConfig;
+import com.jagrosh.jmusicbot.audio.PlayerManager;
 import com.jagrosh.jmusicbot.utils.OtherUtil;
+import com.jagrosh.jmusicbot.utils.ShuffleUtil;
 import com.sedmelluq.discord.lavaplayer.player.AudioLoadResultHandler;
-import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
 import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
 import com.sedmelluq.discord.lavaplayer.track.AudioPlaylist;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
@@ -27,6 +28,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.util.*;
 import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 import java.util.stream.Collectors;
 
 /**
@@ -111,7 +113,7 @@ public class PlaylistLoader
                         list.add(s);
                 });
                 if(shuffle[0])
-                    shuffle(list);
+                    ShuffleUtil.shuffle(list);
                 return new Playlist(name, list, shuffle[0]);
             }
             else
@@ -127,25 +129,13 @@ public class PlaylistLoader
     }
     
     
-    private static <T> void shuffle(List<T> list)
-    {
-        for(int first =0; first<list.size(); first++)
-        {
-            int second = (int)(Math.random()*list.size());
-            T tmp = list.get(first);
-            list.set(first, list.get(second));
-            list.set(second, tmp);
-        }
-    }
-    
-    
     public class Playlist
     {
         private final String name;
         private final List<String> items;
         private final boolean shuffle;
-        private final List<AudioTrack> tracks = new LinkedList<>();
-        private final List<PlaylistLoadError> errors = new LinkedList<>();
+        private final List<AudioTrack> tracks = new ArrayList<>();
+        private final List<PlaylistLoadError> errors = new ArrayList<>();
         private boolean loaded = false;
         
         private Playlist(String name, List<String> items, boolean shuffle)
@@ -155,97 +145,47 @@ public class PlaylistLoader
             this.shuffle = shuffle;
         }
         
-        public void loadTracks(AudioPlayerManager manager, Consumer<AudioTrack> consumer, Runnable callback)
+        public void loadTracks(PlayerManager manager, long guildId, Consumer<AudioTrack> consumer, Runnable callback)
+        {
+            loadTracks(manager, guildId, consumer, null, callback);
+        }
+        
+        /**
+         * Resolves the items of this playlist, several at a time (see the
+         * playlistconcurrency setting), and hands every track to the consumer
+         * as soon as possible, so playback can start after the first lookup.
+         * Tracks are given in the order of the items, no matter which lookup
+         * finishes first. Shuffled playlists already have their items in
+         * random order, so their tracks are given as soon as they resolve.
+         * 
+         * @param manager  the manager to load the items with
+         * @param guildId  the guild the tracks are loaded for
+         * @param consumer receives every loaded track, in order
+         * @param progress receives the number of items resolved so far, may be null
+         * @param callback runs once every item has been resolved, may be null
+         */
+        public void loadTracks(PlayerManager manager, long guildId, Consumer<AudioTrack> consumer, IntConsumer progress, Runnable callback)
         {
             if(loaded)
                 return;
             loaded = true;
-            for(int i=0; i<items.size(); i++)
+            if(items.isEmpty())
             {
-                boolean last = i+1 == items.size();
-                int index = i;
-                manager.loadItemOrdered(name, items.get(i), new AudioLoadResultHandler() 
-                {
-                    private void done()
-                    {
-                        if(last)
-                        {
-                            if(shuffle)
-                                shuffleTracks();
-                            if(callback != null)
-                                callback.run();
-                        }
-                    }
-
-                    @Override
-                    public void trackLoaded(AudioTrack at) 
-                    {
-                        if(config.isTooLong(at))
-                            errors.add(new PlaylistLoadError(index, items.get(index), "This track is longer than the allowed maximum"));
-                        else
-                        {
-                            at.setUserData(0L);
-                            tracks.add(at);
-                            consumer.accept(at);
-                        }
-                        done();
-                    }
-
-                    @Override
-                    public void playlistLoaded(AudioPlaylist ap) 
-                    {
-                        if(ap.isSearchResult())
-                        {
-                            trackLoaded(ap.getTracks().get(0));
-                        }
-                        else if(ap.getSelectedTrack()!=null)
-                        {
-                            trackLoaded(ap.getSelectedTrack());
-                        }
-                        else
-                        {
-                            List<AudioTrack> loaded = new ArrayList<>(ap.getTracks());
-                            if(shuffle)
-                                for(int first =0; first<loaded.size(); first++)
-                                {
-                                    int second = (int)(Math.random()*loaded.size());
-                                    AudioTrack tmp = loaded.get(first);
-                                    loaded.set(first, loaded.get(second));
-                                    loaded.set(second, tmp);
-                                }
-                            loaded.removeIf(track -> config.isTooLong(track));
-                            loaded.forEach(at -> at.setUserData(0L));
-                            tracks.addAll(loaded);
-                            loaded.forEach(at -> consumer.accept(at));
-                        }
-                        done();
-                    }
-
-                    @Override
-                    public void noMatches() 
-                    {
-                        errors.add(new PlaylistLoadError(index, items.get(index), "No matches found."));
-                        done();
-                    }
-
-                    @Override
-                    public void loadFailed(FriendlyException fe) 
-                    {
-                        errors.add(new PlaylistLoadError(index, items.get(index), "Failed to load track: "+fe.getLocalizedMessage()));
-                        done();
-                    }
-                });
+                if(callback != null)
+                    callback.run();
+                return;
             }
+            new ItemLoader(manager, guildId, consumer, progress, callback).start();
         }
         
-        public void shuffleTracks()
+        public String getName()
         {
-            shuffle(tracks);
+            return name;
         }
         
-        public String getName()
+        public boolean isShuffle()
         {
-            return name;
+            return shuffle;
         }
 
         public List<String> getItems()
@@ -262,6 +202,193 @@ public class PlaylistLoader
         {
             return errors;
         }
+        
+        private class ItemLoader
+        {
+            private final PlayerManager manager;
+            private final long guildId;
+            private final Consumer<AudioTrack> consumer;
+            private final IntConsumer progress;
+            private final Runnable callback;
+            private final ItemResult[] results = new ItemResult[items.size()];
+            private List<AudioTrack> pending = new ArrayList<>();
+            private int next = 0, delivered = 0, resolved = 0, reported = 0;
+            private boolean delivering = false;
+            
+            private ItemLoader(PlayerManager manager, long guildId, Consumer<AudioTrack> consumer, IntConsumer progress, Runnable callback)
+            {
+                this.manager = manager;
+                this.guildId = guildId;
+                this.consumer = consumer;
+                this.progress = progress;
+                this.callback = callback;
+            }
+            
+            private synchronized void start()
+            {
+                int concurrency = Math.max(1, config.getPlaylistConcurrency());
+                while(next < items.size() && next < concurrency)
+                    load(next++);
+            }
+            
+            private void load(int index)
+            {
+                // a distinct ordering key per item lets the lookups run in parallel
+                manager.loadItemOrdered(guildId, name + "#" + index, items.get(index), new ItemHandler(this, index));
+            }
+            
+            private void complete(int index, ItemResult result)
+            {
+                synchronized(this)
+                {
+                    if(shuffle)
+                    {
+                        // the items are in random order already, so nothing needs to wait for earlier ones
+                        collect(result);
+                    }
+                    else
+                    {
+                        results[index] = result;
+                        // take everything that is now complete from the front, so the order is kept
+                        while(delivered < results.length && results[delivered] != null)
+                        {
+                            collect(results[delivered]);
+                            results[delivered++] = null;
+                        }
+                    }
+                    resolved++;
+                    if(next < items.size())
+                        load(next++);
+                    if(resolved == items.size() && shuffle)
+                        errors.sort(Comparator.comparingInt(PlaylistLoadError::getIndex));
+                    // whoever is delivering already will pick these up too
+                    if(delivering)
+                        return;
+                    delivering = true;
+                }
+                deliver();
+            }
+            
+            private void collect(ItemResult result)
+            {
+                if(result.error != null)
+                    errors.add(result.error);
+                for(AudioTrack at: result.tracks)
+                {
+                    if(shuffle)
+                        // inside-out shuffle: the loaded tracks are uniformly shuffled at every point
+                        ShuffleUtil.addRandomly(tracks, at);
+                    else
+                        tracks.add(at);
+                    pending.add(at);
+                }
+            }
+            
+            /**
+             * Hands the collected tracks over without holding the lock, so the
+             * consumer can't stall the other lookups. Only one thread delivers
+             * at a time, which keeps the tracks in order.
+             */
+            private void deliver()
+            {
+                while(true)
+                {
+                    List<AudioTrack> batch;
+                    int count;
+                    synchronized(this)
+                    {
+                        if(pending.isEmpty() && reported == resolved)
+                        {
+                            delivering = false;
+                            return;
+                        }
+                        batch = pending;
+                        pending = new ArrayList<>();
+                        count = reported = resolved;
+                    }
+                    batch.forEach(consumer);
+                    if(progress != null)
+                        progress.accept(count);
+                    if(count == items.size() && callback != null)
+                        callback.run();
+                }
+            }
+        }
+        
+        private class ItemHandler implements AudioLoadResultHandler
+        {
+            private final ItemLoader loader;
+            private final int index;
+            
+            private ItemHandler(ItemLoader loader, int index)
+            {
+                this.loader = loader;
+                this.index = index;
+            }
+            
+            private void error(String reason)
+            {
+                loader.complete(index, new ItemResult(Collections.emptyList(), new PlaylistLoadError(index, items.get(index), reason)));
+            }
+
+            @Override
+            public void trackLoaded(AudioTrack at) 
+            {
+                if(config.isTooLong(at))
+                    error("This track is longer than the allowed maximum");
+                else
+                {
+                    at.setUserData(0L);
+                    loader.complete(index, new ItemResult(Collections.singletonList(at), null));
+                }
+            }
+
+            @Override
+            public void playlistLoaded(AudioPlaylist ap) 
+            {
+                if(ap.isSearchResult())
+                {
+                    trackLoaded(ap.getTracks().get(0));
+                }
+                else if(ap.getSelectedTrack()!=null)
+                {
+                    trackLoaded(ap.getSelectedTrack());
+                }
+                else
+                {
+                    List<AudioTrack> loaded = new ArrayList<>(ap.getTracks());
+                    if(shuffle)
+                        ShuffleUtil.shuffle(loaded);
+                    loaded.removeIf(track -> config.isTooLong(track));
+                    loaded.forEach(at -> at.setUserData(0L));
+                    loader.complete(index, new ItemResult(loaded, null));
+                }
+            }
+
+            @Override
+            public void noMatches() 
+            {
+                error("No matches found.");
+            }
+
+            @Override
+            public void loadFailed(FriendlyException fe) 
+            {
+                error("Failed to load track: "+fe.getLocalizedMessage());
+            }
+        }
+    }
+    
+    private static class ItemResult
+    {
+        private final List<AudioTrack> tracks;
+        private final PlaylistLoadError error;
+        
+        private ItemResult(List<AudioTrack> tracks, PlaylistLoadError error)
+        {
+            this.tracks = tracks;
+            this.error = error;
+        }
     }
     
     public class PlaylistLoadError
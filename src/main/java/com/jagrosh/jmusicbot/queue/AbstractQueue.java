@@ -15,103 +15,262 @@
  */
 package com.jagrosh.jmusicbot.queue;
 
+import com.jagrosh.jmusicbot.utils.ShuffleUtil;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntUnaryOperator;
 
 /**
+ * The base of the queue types. Besides the entries themselves, it keeps
+ * running totals and the entries of every requester, so per-requester
+ * lookups don't scan the queue. Entries are told apart by identity, so the
+ * same object must not be queued twice.
+ * <p>
+ * Every public method locks the queue, since it is changed by the player and
+ * by commands while open menus read from it. Subclasses must lock their
+ * overrides too.
  *
  * @author Wolfgang Schwendtbauer
  * @param <T>
  */
 public abstract class AbstractQueue<T extends Queueable>
 {
+    /**
+     * Creates a queue holding the entries of the previous queue in an
+     * array-backed {@link RingList}
+     *
+     * @param queue the previous queue, or null
+     */
     protected AbstractQueue(AbstractQueue<T> queue)
     {
-        this.list = queue != null ? queue.getList() : new LinkedList<>();
+        this(new RingList<>(queue != null ? queue.getList() : Collections.emptyList()));
+    }
+
+    /**
+     * Creates a queue on top of a specific storage list, for queue types
+     * that need a different container than the default
+     *
+     * @param list the storage list, already holding any previous entries
+     */
+    protected AbstractQueue(List<T> list)
+    {
+        this.list = list;
+        list.forEach(this::added);
     }
 
     protected final List<T> list;
+    private final Totals totals = new Totals();
+    private final Map<Long, Totals> requesterTotals = new HashMap<>();
+    private final Map<Long, Set<T>> requesterEntries = new HashMap<>();
 
     public abstract int add(T item);
 
-    public void addAt(int index, T item)
+    /**
+     * Adds many entries at once, ending up in the same order as adding them
+     * one at a time, like when a playlist is loaded
+     *
+     * @param items the entries to add
+     */
+    public synchronized void addAll(Collection<? extends T> items)
+    {
+        for(T item: items)
+            add(item);
+    }
+
+    public synchronized void addAt(int index, T item)
     {
         if(index >= list.size())
             list.add(item);
         else
             list.add(index, item);
+        added(item);
     }
 
-    public int size() {
+    public synchronized int size() {
         return list.size();
     }
 
-    public T pull() {
-        return list.remove(0);
+    public synchronized T pull() {
+        return removed(list.remove(0));
     }
 
-    public boolean isEmpty()
+    public synchronized boolean isEmpty()
     {
         return list.isEmpty();
     }
 
-    public List<T> getList()
+    /**
+     * @return a copy of the queue
+     */
+    public synchronized List<T> getList()
+    {
+        return new ArrayList<>(list);
+    }
+
+    /**
+     * Copies part of the queue, like a page of it being shown
+     *
+     * @param from the index of the first entry
+     * @param to   the index after the last entry; past the end is fine
+     * @return a copy of the entries in the range that still exist
+     */
+    public synchronized List<T> getRange(int from, int to)
     {
-        return list;
+        int end = Math.min(to, list.size());
+        return from >= end ? Collections.emptyList() : new ArrayList<>(list.subList(from, end));
     }
 
-    public T get(int index) {
+    /**
+     * @return the combined duration of every entry, or {@link Long#MAX_VALUE}
+     *         if any entry has no known duration
+     */
+    public synchronized long getDuration()
+    {
+        return totals.getDuration();
+    }
+
+    /**
+     * @param identifier the requester
+     * @return the number of entries from the requester
+     */
+    public synchronized int getCount(long identifier)
+    {
+        Totals t = requesterTotals.get(identifier);
+        return t == null ? 0 : t.count;
+    }
+
+    /**
+     * @param identifier the requester
+     * @return the combined duration of the requester's entries, or
+     *         {@link Long#MAX_VALUE} if any of them has no known duration
+     */
+    public synchronized long getDuration(long identifier)
+    {
+        Totals t = requesterTotals.get(identifier);
+        return t == null ? 0 : t.getDuration();
+    }
+
+    public synchronized T get(int index) {
         return list.get(index);
     }
 
-    public T remove(int index)
+    /**
+     * @param item an entry
+     * @return the current index of that exact entry, or -1 if it isn't in
+     *         the queue (anymore)
+     */
+    public synchronized int indexOf(T item)
+    {
+        if(list instanceof IndexedList)
+            return ((IndexedList<T>) list).position(item);
+        for(int i=0; i<list.size(); i++)
+            if(list.get(i) == item)
+                return i;
+        return -1;
+    }
+
+    /**
+     * @param items entries
+     * @return the current index of each entry, or -1 for entries that
+     *         aren't in the queue (anymore)
+     */
+    public synchronized int[] indexesOf(List<T> items)
+    {
+        int[] indexes = new int[items.size()];
+        for(int i=0; i<indexes.length; i++)
+            indexes[i] = indexOf(items.get(i));
+        return indexes;
+    }
+
+    /**
+     * @param identifier the requester
+     * @return the requester's entries, in queue order
+     */
+    public synchronized List<T> getEntries(long identifier)
     {
-        return list.remove(index);
+        Set<T> entries = requesterEntries.get(identifier);
+        if(entries == null)
+            return Collections.emptyList();
+        List<T> sorted = new ArrayList<>(entries.size());
+        for(int i : positions(entries))
+            sorted.add(list.get(i));
+        return sorted;
     }
 
-    public int removeAll(long identifier)
+    public synchronized T remove(int index)
     {
-        int count = 0;
-        for(int i=list.size()-1; i>=0; i--)
-        {
-            if(list.get(i).getIdentifier()==identifier)
-            {
-                list.remove(i);
-                count++;
-            }
-        }
-        return count;
+        return removed(list.remove(index));
     }
 
-    public void clear()
+    public synchronized int removeAll(long identifier)
+    {
+        Set<T> entries = requesterEntries.get(identifier);
+        if(entries == null)
+            return 0;
+        int[] positions = positions(entries);
+        for(int i=positions.length-1; i>=0; i--)
+            removed(list.remove(positions[i]));
+        return positions.length;
+    }
+
+    public synchronized void clear()
     {
         list.clear();
+        totals.clear();
+        requesterTotals.clear();
+        requesterEntries.clear();
     }
 
-    public int shuffle(long identifier)
+    public synchronized int shuffle(long identifier)
     {
-        List<Integer> iset = new ArrayList<>();
-        for(int i=0; i<list.size(); i++)
-        {
-            if(list.get(i).getIdentifier()==identifier)
-                iset.add(i);
-        }
-        for(int j=0; j<iset.size(); j++)
-        {
-            int first = iset.get(j);
-            int second = iset.get((int)(Math.random()*iset.size()));
-            T temp = list.get(first);
-            list.set(first, list.get(second));
-            list.set(second, temp);
-        }
-        return iset.size();
+        return shuffle(identifier, ShuffleUtil.random());
+    }
+
+    /**
+     * Shuffles a requester's entries among the places they already take up
+     *
+     * @param identifier the requester
+     * @param random     the randomness to shuffle with
+     * @return the number of entries shuffled
+     */
+    public synchronized int shuffle(long identifier, IntUnaryOperator random)
+    {
+        Set<T> entries = requesterEntries.get(identifier);
+        if(entries == null)
+            return 0;
+        int[] positions = positions(entries);
+        ShuffleUtil.shuffleAt(list, positions, random);
+        return positions.length;
     }
 
-    public void skip(int number)
+    public synchronized void shuffleAll()
+    {
+        shuffleAll(ShuffleUtil.random());
+    }
+
+    /**
+     * Shuffles the whole queue
+     *
+     * @param random the randomness to shuffle with
+     */
+    public synchronized void shuffleAll(IntUnaryOperator random)
+    {
+        ShuffleUtil.shuffle(list, random);
+    }
+
+    public synchronized void skip(int number)
     {
         if (number > 0) {
-            list.subList(0, number).clear();
+            List<T> skipped = list.subList(0, number);
+            skipped.forEach(this::removed);
+            skipped.clear();
         }
     }
 
@@ -121,10 +280,82 @@ public abstract class AbstractQueue<T extends Queueable>
      * @param to The new position of the item
      * @return the moved item
      */
-    public T moveItem(int from, int to)
+    public synchronized T moveItem(int from, int to)
     {
         T item = list.remove(from);
         list.add(to, item);
         return item;
     }
+
+    /**
+     * Counts an entry that was just added to the list; subclasses that add
+     * to the list themselves must call this
+     *
+     * @param item the added entry
+     */
+    protected void added(T item)
+    {
+        totals.add(item.getDuration(), 1);
+        requesterTotals.computeIfAbsent(item.getIdentifier(), id -> new Totals()).add(item.getDuration(), 1);
+        requesterEntries.computeIfAbsent(item.getIdentifier(), id -> Collections.newSetFromMap(new IdentityHashMap<>())).add(item);
+    }
+
+    /**
+     * Stops counting an entry that was just removed from the list
+     *
+     * @param item the removed entry
+     * @return the entry
+     */
+    protected T removed(T item)
+    {
+        totals.add(item.getDuration(), -1);
+        Totals t = requesterTotals.get(item.getIdentifier());
+        if(t != null && t.add(item.getDuration(), -1) == 0)
+            requesterTotals.remove(item.getIdentifier());
+        Set<T> entries = requesterEntries.get(item.getIdentifier());
+        if(entries != null && entries.remove(item) && entries.isEmpty())
+            requesterEntries.remove(item.getIdentifier());
+        return item;
+    }
+
+    /**
+     * @param items entries that are in the queue
+     * @return their indexes, in ascending order
+     */
+    private int[] positions(Collection<T> items)
+    {
+        int[] positions = new int[items.size()];
+        int i = 0;
+        for(T item : items)
+            positions[i++] = indexOf(item);
+        Arrays.sort(positions);
+        return positions;
+    }
+
+    private static class Totals
+    {
+        private int count, unknown;
+        private long duration;
+
+        private int add(long itemDuration, int sign)
+        {
+            count += sign;
+            if(itemDuration == Long.MAX_VALUE)
+                unknown += sign;
+            else
+                duration += sign * itemDuration;
+            return count;
+        }
+
+        private long getDuration()
+        {
+            return unknown > 0 ? Long.MAX_VALUE : duration;
+        }
+
+        private void clear()
+        {
+            count = unknown = 0;
+            duration = 0;
+        }
+    }
 }
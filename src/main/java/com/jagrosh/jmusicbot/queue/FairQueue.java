@@ -15,40 +15,72 @@
  */
 package com.jagrosh.jmusicbot.queue;
 
-import java.util.HashSet;
-import java.util.Set;
+import com.jagrosh.jmusicbot.utils.ShuffleUtil;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.function.IntUnaryOperator;
 
 /**
+ * A queue that interleaves requesters. A new entry goes after the requester's
+ * last entry, past the following entries up to the first one whose requester
+ * already came up since then. The queue is kept in a {@link RequesterList},
+ * which finds the requester's last entry without scanning the queue, so the
+ * scan only passes each other requester once.
  *
  * @author John Grosh (jagrosh)
  * @param <T>
  */
 public class FairQueue<T extends Queueable> extends AbstractQueue<T>
 {
+    private final RequesterList<T> entries;
+
     public FairQueue(AbstractQueue<T> queue)
     {
-        super(queue);
+        this(new RequesterList<>(queue != null ? queue.getList() : Collections.emptyList()));
     }
 
-    protected final Set<Long> set = new HashSet<>();
+    private FairQueue(RequesterList<T> entries)
+    {
+        super(entries);
+        this.entries = entries;
+    }
 
     @Override
-    public int add(T item)
+    public synchronized int add(T item)
     {
-        int lastIndex;
-        for(lastIndex=list.size()-1; lastIndex>-1; lastIndex--)
-            if(list.get(lastIndex).getIdentifier() == item.getIdentifier())
-                break;
-        lastIndex++;
-        set.clear();
-        for(; lastIndex<list.size(); lastIndex++)
+        int index = entries.fairIndex(item.getIdentifier());
+        entries.add(index, item);
+        added(item);
+        return index;
+    }
+
+    /**
+     * Merges a batch from a single requester (like a playlist) into the queue
+     * in one pass, unless the batch is small enough that adding the entries
+     * one by one is cheaper; mixed batches are always added one by one
+     */
+    @Override
+    public synchronized void addAll(Collection<? extends T> items)
+    {
+        int log = 32 - Integer.numberOfLeadingZeros(entries.size());
+        if((long) items.size() * log < entries.size() || items.stream().mapToLong(Queueable::getIdentifier).distinct().count() > 1)
         {
-            if(set.contains(list.get(lastIndex).getIdentifier()))
-                break;
-            set.add(list.get(lastIndex).getIdentifier());
+            super.addAll(items);
+            return;
         }
-        list.add(lastIndex, item);
-        return lastIndex;
+        entries.addFair(new ArrayList<>(items));
+        items.forEach(this::added);
+    }
+
+    /**
+     * Shuffles every requester's entries among their own places, so the
+     * queue stays interleaved by requester
+     */
+    @Override
+    public synchronized void shuffleAll(IntUnaryOperator random)
+    {
+        ShuffleUtil.fairShuffle(list, Queueable::getIdentifier, random);
     }
 
 }
@@ -0,0 +1,33 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.queue;
+
+import java.util.List;
+
+/**
+ * A queue storage list that knows where each of its elements is, without
+ * scanning. Elements are told apart by identity, so the same object must not
+ * be in the list twice.
+ *
+ * @param <T>
+ */
+interface IndexedList<T> extends List<T>
+{
+    /**
+     * @param item the element
+     * @return the current index of that exact element, or -1 if it isn't in
+     *         the list
+     */
+    int position(Object item);
+}
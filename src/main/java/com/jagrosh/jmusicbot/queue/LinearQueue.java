@@ -15,6 +15,8 @@
  */
 package com.jagrosh.jmusicbot.queue;
 
+import java.util.Collection;
+
 /**
  *
  * @author Wolfgang Schwendtbauer
@@ -28,10 +30,18 @@ public class LinearQueue<T extends Queueable> extends AbstractQueue<T>
     }
 
     @Override
-    public int add(T item)
+    public synchronized int add(T item)
     {
         list.add(item);
+        added(item);
         return list.size() - 1;
     }
 
+    @Override
+    public synchronized void addAll(Collection<? extends T> items)
+    {
+        list.addAll(items);
+        items.forEach(this::added);
+    }
+
 }
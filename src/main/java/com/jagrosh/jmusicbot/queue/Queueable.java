@@ -22,4 +22,13 @@ package com.jagrosh.jmusicbot.queue;
 public interface Queueable {
     
     public long getIdentifier();
+    
+    /**
+     * @return the length of the entry in milliseconds, {@link Long#MAX_VALUE}
+     *         if it isn't known, or 0 if entries of this kind have no length
+     */
+    public default long getDuration()
+    {
+        return 0;
+    }
 }
@@ -0,0 +1,401 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.queue;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * An order-statistic tree (a size-augmented treap) that also keeps the
+ * entries of every requester in queue order. Positional get, add and remove
+ * are O(log n), and so is finding an element's index, by walking up from its
+ * node. A requester's last entry is found in O(log^2 n), which is what makes
+ * the fair insertion point cheap to find.
+ *
+ * @param <T>
+ */
+class RequesterList<T extends Queueable> extends AbstractList<T> implements IndexedList<T>
+{
+    private final Map<Long, TreeSet<Node<T>>> requesters = new HashMap<>();
+    private final IdentityHashMap<Object, Node<T>> nodes = new IdentityHashMap<>();
+    private Node<T> root;
+    private int seed = 0x2545F491;
+
+    RequesterList(Collection<T> items)
+    {
+        items.forEach(item -> add(size(), item));
+    }
+
+    /**
+     * Finds where {@link FairQueue} puts a new entry: right after the
+     * requester's last entry, past every following entry up to the first one
+     * whose requester already came up since then (or the end of the list).
+     * The scan only ever passes each other requester once.
+     *
+     * @param identifier the requester
+     * @return the index for a new entry
+     */
+    int fairIndex(long identifier)
+    {
+        TreeSet<Node<T>> entries = requesters.get(identifier);
+        int index = entries == null ? 0 : rank(entries.last()) + 1;
+        Set<Long> seen = new HashSet<>();
+        for(Node<T> node = index < size() ? node(index) : null; node != null; node = successor(node))
+        {
+            if(!seen.add(node.value.getIdentifier()))
+                break;
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Adds entries from a single requester where adding them one at a time
+     * at {@link #fairIndex} would put them, in one pass over the list: each
+     * entry goes where the scan for the previous one stopped. The list and
+     * the tree are rebuilt together, which is O(n + k) instead of
+     * O(k (log^2 n + r log n)).
+     *
+     * @param items the entries, all from the same requester, in the order
+     *              they would have been added
+     */
+    void addFair(List<T> items)
+    {
+        if(items.isEmpty())
+            return;
+        long identifier = items.get(0).getIdentifier();
+        TreeSet<Node<T>> entries = requesters.get(identifier);
+        int last = entries == null ? -1 : rank(entries.last());
+        List<Node<T>> merged = new ArrayList<>(size() + items.size());
+        List<Node<T>> added = new ArrayList<>(items.size());
+        Set<Long> seen = new HashSet<>();
+        int index = 0;
+        for(Node<T> node = root == null ? null : node(0); node != null; node = successor(node), index++)
+        {
+            if(index > last && added.size() < items.size() && !seen.add(node.value.getIdentifier()))
+            {
+                // this entry's requester already came up since the last insertion, so the next entry goes before it
+                Node<T> inserted = new Node<>(items.get(added.size()), nextPriority());
+                merged.add(inserted);
+                added.add(inserted);
+                seen.clear();
+                seen.add(node.value.getIdentifier());
+            }
+            merged.add(node);
+        }
+        while(added.size() < items.size())
+        {
+            Node<T> inserted = new Node<>(items.get(added.size()), nextPriority());
+            merged.add(inserted);
+            added.add(inserted);
+        }
+
+        root = build(merged);
+        for(Node<T> node: added)
+        {
+            nodes.put(node.value, node);
+            track(node);
+        }
+        modCount++;
+    }
+
+    @Override
+    public int position(Object item)
+    {
+        Node<T> node = nodes.get(item);
+        return node == null ? -1 : rank(node);
+    }
+
+    @Override
+    public T get(int index)
+    {
+        return node(index).value;
+    }
+
+    @Override
+    public T set(int index, T item)
+    {
+        Node<T> node = node(index);
+        T old = node.value;
+        untrack(node);
+        node.value = item;
+        track(node);
+        nodes.remove(old, node);
+        nodes.put(item, node);
+        return old;
+    }
+
+    @Override
+    public void add(int index, T item)
+    {
+        if(index < 0 || index > size())
+            throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size());
+        Node<T> node = new Node<>(item, nextPriority());
+        root = insert(root, index, node);
+        root.parent = null;
+        nodes.put(item, node);
+        track(node);
+        modCount++;
+    }
+
+    @Override
+    public T remove(int index)
+    {
+        Node<T> node = node(index);
+        // untracked while it's still in the tree, since the requester's entries are ordered by index
+        untrack(node);
+        root = delete(root, index);
+        if(root != null)
+            root.parent = null;
+        nodes.remove(node.value, node);
+        modCount++;
+        return node.value;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex)
+    {
+        for(int i = fromIndex; i < toIndex; i++)
+            remove(fromIndex);
+    }
+
+    @Override
+    public void clear()
+    {
+        root = null;
+        requesters.clear();
+        nodes.clear();
+        modCount++;
+    }
+
+    @Override
+    public int size()
+    {
+        return size(root);
+    }
+
+    // Private methods
+    private void track(Node<T> node)
+    {
+        requesters.computeIfAbsent(node.value.getIdentifier(), id -> new TreeSet<>((a, b) -> Integer.compare(rank(a), rank(b)))).add(node);
+    }
+
+    private void untrack(Node<T> node)
+    {
+        TreeSet<Node<T>> entries = requesters.get(node.value.getIdentifier());
+        if(entries != null && entries.remove(node) && entries.isEmpty())
+            requesters.remove(node.value.getIdentifier());
+    }
+
+    private int rank(Node<T> node)
+    {
+        int index = size(node.left);
+        for(; node.parent != null; node = node.parent)
+            if(node == node.parent.right)
+                index += size(node.parent.left) + 1;
+        return index;
+    }
+
+    private Node<T> node(int index)
+    {
+        if(index < 0 || index >= size())
+            throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size());
+        Node<T> node = root;
+        while(true)
+        {
+            int left = size(node.left);
+            if(index < left)
+                node = node.left;
+            else if(index > left)
+            {
+                index -= left + 1;
+                node = node.right;
+            }
+            else
+                return node;
+        }
+    }
+
+    private static <T> Node<T> successor(Node<T> node)
+    {
+        if(node.right != null)
+        {
+            node = node.right;
+            while(node.left != null)
+                node = node.left;
+            return node;
+        }
+        while(node.parent != null && node == node.parent.right)
+            node = node.parent;
+        return node.parent;
+    }
+
+    /**
+     * Builds a treap from nodes in list order in linear time, keeping the
+     * nodes' priorities (a Cartesian tree built with a stack)
+     */
+    private Node<T> build(List<Node<T>> order)
+    {
+        Deque<Node<T>> stack = new ArrayDeque<>();
+        for(Node<T> node: order)
+        {
+            Node<T> last = null;
+            while(!stack.isEmpty() && stack.peek().priority < node.priority)
+                last = stack.pop();
+            node.left = last;
+            node.right = null;
+            if(!stack.isEmpty())
+                stack.peek().right = node;
+            stack.push(node);
+        }
+        Node<T> top = stack.peekLast();
+        if(top != null)
+        {
+            recount(top);
+            top.parent = null;
+        }
+        return top;
+    }
+
+    private static void recount(Node<?> node)
+    {
+        if(node.left != null)
+            recount(node.left);
+        if(node.right != null)
+            recount(node.right);
+        node.update();
+    }
+
+    private Node<T> insert(Node<T> node, int index, Node<T> inserted)
+    {
+        if(node == null)
+            return inserted;
+        int left = size(node.left);
+        if(index <= left)
+        {
+            node.left = insert(node.left, index, inserted);
+            if(node.left.priority > node.priority)
+                return rotateRight(node);
+        }
+        else
+        {
+            node.right = insert(node.right, index - left - 1, inserted);
+            if(node.right.priority > node.priority)
+                return rotateLeft(node);
+        }
+        node.update();
+        return node;
+    }
+
+    private Node<T> delete(Node<T> node, int index)
+    {
+        int left = size(node.left);
+        if(index < left)
+            node.left = delete(node.left, index);
+        else if(index > left)
+            node.right = delete(node.right, index - left - 1);
+        else
+            return merge(node.left, node.right);
+        node.update();
+        return node;
+    }
+
+    private Node<T> merge(Node<T> a, Node<T> b)
+    {
+        if(a == null)
+            return b;
+        if(b == null)
+            return a;
+        if(a.priority > b.priority)
+        {
+            a.right = merge(a.right, b);
+            a.update();
+            return a;
+        }
+        b.left = merge(a, b.left);
+        b.update();
+        return b;
+    }
+
+    private Node<T> rotateRight(Node<T> node)
+    {
+        Node<T> pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        node.update();
+        pivot.update();
+        return pivot;
+    }
+
+    private Node<T> rotateLeft(Node<T> node)
+    {
+        Node<T> pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        node.update();
+        pivot.update();
+        return pivot;
+    }
+
+    private int nextPriority()
+    {
+        // xorshift; treap priorities only need to be well spread, not secure
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+
+    private static int size(Node<?> node)
+    {
+        return node == null ? 0 : node.size;
+    }
+
+    private static class Node<T>
+    {
+        private final int priority;
+        private T value;
+        private int size = 1;
+        private Node<T> left, right, parent;
+
+        private Node(T value, int priority)
+        {
+            this.value = value;
+            this.priority = priority;
+        }
+
+        /**
+         * Recounts the subtree and claims the children, called whenever a
+         * child changes; the root's parent is cleared after every change
+         */
+        private void update()
+        {
+            size = size(left) + size(right) + 1;
+            if(left != null)
+                left.parent = this;
+            if(right != null)
+                right.parent = this;
+        }
+    }
+}
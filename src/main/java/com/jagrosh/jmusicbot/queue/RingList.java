@@ -0,0 +1,198 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.queue;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.RandomAccess;
+
+/**
+ * An array-backed list that keeps its free space as a gap in a circular
+ * buffer. Both ends of the list sit next to the gap, so pulling from the front
+ * and appending to the back are O(1), positional access is O(1), and inserting
+ * or removing elsewhere only shifts the shorter side of the list. The slot of
+ * every element is tracked as it moves, so finding an element is O(1) too.
+ *
+ * @param <T>
+ */
+class RingList<T> extends AbstractList<T> implements IndexedList<T>, RandomAccess
+{
+    private static final int MIN_CAPACITY = 16;
+
+    private final IdentityHashMap<Object, Integer> slots = new IdentityHashMap<>();
+    private Object[] elements;
+    private int head;
+    private int size;
+
+    RingList(Collection<? extends T> items)
+    {
+        int capacity = MIN_CAPACITY;
+        while(capacity < items.size())
+            capacity <<= 1;
+        elements = new Object[capacity];
+        for(T item: items)
+        {
+            slots.put(item, size);
+            elements[size++] = item;
+        }
+    }
+
+    @Override
+    public int position(Object item)
+    {
+        Integer slot = slots.get(item);
+        return slot == null ? -1 : (slot - head) & (elements.length - 1);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index)
+    {
+        checkIndex(index, size - 1);
+        return (T) elements[slot(index)];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T set(int index, T item)
+    {
+        checkIndex(index, size - 1);
+        int slot = slot(index);
+        T old = (T) elements[slot];
+        elements[slot] = item;
+        slots.remove(old, slot);
+        slots.put(item, slot);
+        return old;
+    }
+
+    @Override
+    public void add(int index, T item)
+    {
+        checkIndex(index, size);
+        if(size == elements.length)
+            grow();
+        if(index < size / 2)
+        {
+            head = (head - 1) & (elements.length - 1);
+            shift(1, 0, index);
+        }
+        else
+            shift(index, index + 1, size - index);
+        elements[slot(index)] = item;
+        slots.put(item, slot(index));
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public T remove(int index)
+    {
+        T old = get(index);
+        removeRange(index, index + 1);
+        return old;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex)
+    {
+        int count = toIndex - fromIndex;
+        if(count <= 0)
+            return;
+        for(int i = fromIndex; i < toIndex; i++)
+            slots.remove(elements[slot(i)], slot(i));
+        if(fromIndex < size - toIndex)
+        {
+            // close the range from the front
+            shift(0, count, fromIndex);
+            clear(0, count);
+            head = slot(count);
+        }
+        else
+        {
+            // close the range from the back
+            shift(toIndex, fromIndex, size - toIndex);
+            clear(size - count, count);
+        }
+        size -= count;
+        modCount++;
+    }
+
+    @Override
+    public void clear()
+    {
+        clear(0, size);
+        slots.clear();
+        head = 0;
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public int size()
+    {
+        return size;
+    }
+
+    // Private methods
+    private int slot(int index)
+    {
+        return (head + index) & (elements.length - 1);
+    }
+
+    /**
+     * Moves {@code length} elements starting at list index {@code from} so
+     * that they start at list index {@code to}, handling overlap and wrapping
+     */
+    private void shift(int from, int to, int length)
+    {
+        if(from > to)
+            for(int i = 0; i < length; i++)
+                move(from + i, to + i);
+        else
+            for(int i = length - 1; i >= 0; i--)
+                move(from + i, to + i);
+    }
+
+    private void move(int from, int to)
+    {
+        Object item = elements[slot(from)];
+        elements[slot(to)] = item;
+        slots.put(item, slot(to));
+    }
+
+    private void clear(int from, int length)
+    {
+        for(int i = 0; i < length; i++)
+            elements[slot(from + i)] = null;
+    }
+
+    private void grow()
+    {
+        Object[] larger = new Object[elements.length << 1];
+        for(int i = 0; i < size; i++)
+        {
+            larger[i] = elements[slot(i)];
+            slots.put(larger[i], i);
+        }
+        elements = larger;
+        head = 0;
+    }
+
+    private void checkIndex(int index, int max)
+    {
+        if(index < 0 || index > max)
+            throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size);
+    }
+}
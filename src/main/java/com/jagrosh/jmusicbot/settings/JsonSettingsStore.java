@@ -0,0 +1,116 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.settings;
+
+import com.jagrosh.jmusicbot.utils.OtherUtil;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps every guild's settings in the single serversettings.json file. Any
+ * change rewrites the whole file, so every record is kept in memory, but
+ * only as its compact json text; a record is parsed again when it is
+ * loaded, and the {@link SettingsManager} keeps what it needs.
+ */
+public class JsonSettingsStore implements SettingsStore
+{
+    private final static Logger LOG = LoggerFactory.getLogger("Settings");
+    public final static String SETTINGS_FILE = "serversettings.json";
+    
+    private final Path file;
+    private final Map<Long, String> records = new HashMap<>();
+    private boolean loaded = false;
+    
+    public JsonSettingsStore()
+    {
+        this(OtherUtil.getPath(SETTINGS_FILE));
+    }
+    
+    public JsonSettingsStore(Path file)
+    {
+        this.file = file;
+    }
+
+    @Override
+    public synchronized Map<Long, JSONObject> loadAll() throws IOException
+    {
+        records.clear();
+        loaded = true;
+        try 
+        {
+            JSONObject loadedSettings = new JSONObject(new String(Files.readAllBytes(file)));
+            loadedSettings.keySet().forEach(id -> records.put(Long.parseLong(id), loadedSettings.getJSONObject(id).toString()));
+        }
+        catch(NoSuchFileException e)
+        {
+            // create an empty json file
+            LOG.info("serversettings.json will be created in " + file.toAbsolutePath());
+            Files.write(file, new JSONObject().toString(4).getBytes());
+            return new HashMap<>();
+        }
+        LOG.info("serversettings.json loaded from " + file.toAbsolutePath());
+        Map<Long, JSONObject> all = new HashMap<>();
+        records.forEach((id, o) -> all.put(id, new JSONObject(o)));
+        return all;
+    }
+
+    @Override
+    public synchronized JSONObject load(long guildId) throws IOException
+    {
+        // the whole file has to be read anyway, so it is read once and kept
+        if(!loaded)
+            loadAll();
+        String record = records.get(guildId);
+        return record == null ? null : new JSONObject(record);
+    }
+
+    @Override
+    public synchronized void write(Map<Long, JSONObject> changed) throws IOException
+    {
+        if(!loaded)
+            loadAll();
+        changed.forEach((id, o) -> 
+        {
+            if(o.length() == 0)
+                records.remove(id);
+            else
+                records.put(id, o.toString());
+        });
+        JSONObject obj = new JSONObject();
+        records.forEach((id, o) -> obj.put(Long.toString(id), new JSONObject(o)));
+        // write a temporary file first, so a crash mid-write can't leave a broken settings file
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temp, obj.toString(4).getBytes());
+        try
+        {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch(AtomicMoveNotSupportedException ex)
+        {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    @Override
+    public void close() {}
+}
@@ -0,0 +1,317 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.settings;
+
+import com.jagrosh.jmusicbot.utils.OtherUtil;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the settings in a log of per-guild records. A change only appends
+ * the records of the guilds that changed; the latest record of a guild wins.
+ * Opening the log checks every record's checksum and indexes where each
+ * guild's latest record is; records are parsed when they are asked for.
+ * The log is compacted once it holds more than twice as many records as
+ * there are guilds with settings.
+ * 
+ * A record that was cut off at the end of the log (by a crash while it was
+ * being written) is dropped, after the log is copied to a backup. A bad
+ * record anywhere else means the file was damaged, and the log refuses to
+ * open rather than guess which records are still good.
+ * 
+ * If the log doesn't exist yet but a serversettings.json file does, the
+ * settings are imported from that file. The old file is left as it was, so
+ * going back to the "json" store still works, but it isn't updated anymore.
+ */
+public class LogSettingsStore implements SettingsStore
+{
+    private final static Logger LOG = LoggerFactory.getLogger("Settings");
+    public final static String SETTINGS_FILE = "serversettings.db";
+    private final static int FILE_MAGIC = 0x4A4D5353, FILE_VERSION = 2, HEADER_SIZE = 8;
+    // size, guild id and (since version 2) a checksum of all three
+    private final static int RECORD_HEADER_V1 = 12, RECORD_HEADER = 16;
+    private final static int MIN_COMPACT_RECORDS = 1000;
+    
+    private final Path file, legacyFile;
+    private final Map<Long, Long> index = new HashMap<>();
+    private RandomAccessFile log;
+    private int version;
+    private int records = 0;
+    
+    public LogSettingsStore()
+    {
+        this(OtherUtil.getPath(SETTINGS_FILE), OtherUtil.getPath(JsonSettingsStore.SETTINGS_FILE));
+    }
+    
+    /**
+     * @param file       the log file
+     * @param legacyFile a serversettings.json file to import settings from if
+     *                   the log doesn't exist yet, may be null
+     */
+    public LogSettingsStore(Path file, Path legacyFile)
+    {
+        this.file = file;
+        this.legacyFile = legacyFile;
+    }
+
+    @Override
+    public synchronized Map<Long, JSONObject> loadAll() throws IOException
+    {
+        open();
+        Map<Long, JSONObject> all = new HashMap<>();
+        for(Map.Entry<Long, Long> entry: index.entrySet())
+            all.put(entry.getKey(), read(entry.getValue()));
+        return all;
+    }
+
+    @Override
+    public synchronized JSONObject load(long guildId) throws IOException
+    {
+        open();
+        Long position = index.get(guildId);
+        return position == null ? null : read(position);
+    }
+
+    @Override
+    public synchronized void write(Map<Long, JSONObject> changed) throws IOException
+    {
+        open();
+        for(Map.Entry<Long, JSONObject> entry: changed.entrySet())
+            append(entry.getKey(), entry.getValue());
+        if(records > Math.max(MIN_COMPACT_RECORDS, 2 * index.size()))
+            compact();
+    }
+
+    @Override
+    public synchronized void close()
+    {
+        if(log == null)
+            return;
+        try
+        {
+            log.close();
+        }
+        catch(IOException ignore) {}
+        log = null;
+    }
+    
+    // Private methods
+    private void open() throws IOException
+    {
+        if(log != null)
+            return;
+        boolean migrate = !Files.exists(file) && legacyFile != null && Files.exists(legacyFile);
+        log = new RandomAccessFile(file.toFile(), "rw");
+        if(log.length() < HEADER_SIZE)
+        {
+            log.setLength(0);
+            log.writeInt(FILE_MAGIC);
+            log.writeInt(FILE_VERSION);
+            version = FILE_VERSION;
+        }
+        else
+        {
+            int magic = log.readInt();
+            version = log.readInt();
+            if(magic != FILE_MAGIC || version < 1 || version > FILE_VERSION)
+            {
+                close();
+                throw new IOException(file + " is not a settings file");
+            }
+        }
+        try
+        {
+            scan();
+        }
+        catch(IOException ex)
+        {
+            close();
+            throw ex;
+        }
+        if(version < FILE_VERSION)
+        {
+            LOG.info("Upgrading " + SETTINGS_FILE + "; the old file was copied to " + backup().getFileName());
+            compact();
+        }
+        else if(!migrate)
+            LOG.info(SETTINGS_FILE + " opened from " + file.toAbsolutePath() + " (" + index.size() + " servers)");
+        else
+        {
+            try
+            {
+                migrate();
+            }
+            catch(IOException | RuntimeException ex)
+            {
+                // leave the old file in charge, so the import is tried again on the next start
+                close();
+                Files.deleteIfExists(file);
+                throw ex;
+            }
+        }
+    }
+    
+    /**
+     * Builds the index of the latest record of every guild. An incomplete
+     * record at the end of the log is cut off; a bad record before the end
+     * stops the log from opening.
+     */
+    private void scan() throws IOException
+    {
+        index.clear();
+        records = 0;
+        int header = version > 1 ? RECORD_HEADER : RECORD_HEADER_V1;
+        long position = HEADER_SIZE, length = log.length();
+        while(position + header <= length)
+        {
+            log.seek(position);
+            int size = log.readInt();
+            long guildId = log.readLong();
+            if(size < 0)
+                throw corrupt(position);
+            if(position + header + size > length)
+                break; // cut off at the end
+            if(version > 1)
+            {
+                int checksum = log.readInt();
+                byte[] data = new byte[size];
+                log.readFully(data);
+                if(checksum(size, guildId, data) != checksum)
+                {
+                    if(position + header + size == length)
+                        break; // the last record was only partly written
+                    throw corrupt(position);
+                }
+            }
+            if(size == 0)
+                index.remove(guildId);
+            else
+                index.put(guildId, position);
+            records++;
+            position += header + size;
+        }
+        if(position < length)
+        {
+            LOG.warn(SETTINGS_FILE + " ends with an incomplete record; it will be dropped (the file was copied to " 
+                    + backup().getFileName() + " first)");
+            log.setLength(position);
+        }
+        log.seek(position);
+    }
+    
+    private IOException corrupt(long position)
+    {
+        return new IOException(file + " is damaged at byte " + position + ". It was left as it is; restore it from a "
+                + "backup, or remove it to start over with default settings");
+    }
+    
+    /**
+     * Copies the log next to itself before it is rewritten
+     */
+    private Path backup() throws IOException
+    {
+        Path backup = file.resolveSibling(file.getFileName() + ".bak");
+        Files.copy(file, backup, StandardCopyOption.REPLACE_EXISTING);
+        return backup;
+    }
+    
+    private void migrate() throws IOException
+    {
+        Map<Long, JSONObject> legacy = new JsonSettingsStore(legacyFile).loadAll();
+        for(Map.Entry<Long, JSONObject> entry: legacy.entrySet())
+            append(entry.getKey(), entry.getValue());
+        LOG.info("Imported the settings of " + legacy.size() + " servers into " + SETTINGS_FILE + "; "
+                + legacyFile.getFileName() + " was left in place but won't be updated anymore");
+    }
+    
+    private JSONObject read(long position) throws IOException
+    {
+        log.seek(position);
+        byte[] data = new byte[log.readInt()];
+        log.seek(position + (version > 1 ? RECORD_HEADER : RECORD_HEADER_V1));
+        log.readFully(data);
+        log.seek(log.length());
+        return new JSONObject(new String(data, StandardCharsets.UTF_8));
+    }
+    
+    private void append(long guildId, JSONObject record) throws IOException
+    {
+        byte[] data = record.length() == 0 ? new byte[0] : record.toString().getBytes(StandardCharsets.UTF_8);
+        long position = log.length();
+        log.seek(position);
+        // one write per record, so a crash can only leave the last record incomplete
+        byte[] buffer = new byte[RECORD_HEADER + data.length];
+        writeInt(buffer, 0, data.length);
+        writeLong(buffer, 4, guildId);
+        writeInt(buffer, 12, checksum(data.length, guildId, data));
+        System.arraycopy(data, 0, buffer, RECORD_HEADER, data.length);
+        log.write(buffer);
+        if(data.length == 0)
+            index.remove(guildId);
+        else
+            index.put(guildId, position);
+        records++;
+    }
+    
+    /**
+     * Rewrites the log with only the latest record of every guild
+     */
+    private void compact() throws IOException
+    {
+        Map<Long, JSONObject> live = new HashMap<>();
+        for(Map.Entry<Long, Long> entry: index.entrySet())
+            live.put(entry.getKey(), read(entry.getValue()));
+        close();
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.deleteIfExists(temp);
+        LogSettingsStore compacted = new LogSettingsStore(temp, null);
+        compacted.write(live);
+        compacted.close();
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        open();
+    }
+    
+    private static int checksum(int size, long guildId, byte[] data)
+    {
+        byte[] header = new byte[12];
+        writeInt(header, 0, size);
+        writeLong(header, 4, guildId);
+        CRC32 crc = new CRC32();
+        crc.update(header);
+        crc.update(data);
+        return (int) crc.getValue();
+    }
+    
+    private static void writeInt(byte[] buffer, int offset, int value)
+    {
+        for(int i = 0; i < 4; i++)
+            buffer[offset + i] = (byte) (value >>> (24 - 8 * i));
+    }
+    
+    private static void writeLong(byte[] buffer, int offset, long value)
+    {
+        for(int i = 0; i < 8; i++)
+            buffer[offset + i] = (byte) (value >>> (56 - 8 * i));
+    }
+}
@@ -16,11 +16,16 @@
 package com.jagrosh.jmusicbot.settings;
 
 import com.jagrosh.jdautilities.command.GuildSettingsManager;
-import com.jagrosh.jmusicbot.utils.OtherUtil;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.NoSuchFileException;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import net.dv8tion.jda.api.entities.Guild;
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -34,48 +39,43 @@ import org.slf4j.LoggerFactory;
 public class SettingsManager implements GuildSettingsManager<Settings>
 {
     private final static Logger LOG = LoggerFactory.getLogger("Settings");
-    private final static String SETTINGS_FILE = "serversettings.json";
-    private final HashMap<Long,Settings> settings;
+    private final static int STRIPE_BITS = 4, STRIPES = 1 << STRIPE_BITS;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final SettingsStore store;
+    private final long writeDelay;
+    private final ScheduledExecutorService writer;
+    private final AtomicBoolean writePending = new AtomicBoolean(false);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private final Map<Long,Settings> dirty = new ConcurrentHashMap<>();
+    private final Map<Long,Settings> writing = new ConcurrentHashMap<>();
 
-    public SettingsManager()
+    /**
+     * Settings are loaded from the store the first time a guild's settings
+     * are asked for, and only the most recently used guilds are kept in
+     * memory. Guilds without stored settings get new default settings every
+     * time, which are neither kept nor written until something is changed,
+     * so guilds that never change anything take no memory. The guilds are spread over
+     * independently locked stripes, so threads working on different guilds
+     * rarely wait for each other.
+     * 
+     * @param store      where the settings are loaded from and written to
+     * @param writeDelay how many milliseconds to collect changes for before
+     *                   they are written to the store
+     * @param cacheSize  how many guilds to keep the settings of in memory, or
+     *                   0 to keep every guild that was used
+     */
+    public SettingsManager(SettingsStore store, long writeDelay, int cacheSize)
     {
-        this.settings = new HashMap<>();
-
-        try {
-            JSONObject loadedSettings = new JSONObject(new String(Files.readAllBytes(OtherUtil.getPath(SETTINGS_FILE))));
-            loadedSettings.keySet().forEach((id) -> {
-                JSONObject o = loadedSettings.getJSONObject(id);
-
-                // Legacy version support: On versions 0.3.3 and older, the repeat mode was represented as a boolean.
-                if (!o.has("repeat_mode") && o.has("repeat") && o.getBoolean("repeat"))
-                    o.put("repeat_mode", RepeatMode.ALL);
-
-
-                settings.put(Long.parseLong(id), new Settings(this,
-                        o.has("text_channel_id") ? o.getString("text_channel_id")            : null,
-                        o.has("voice_channel_id")? o.getString("voice_channel_id")           : null,
-                        o.has("dj_role_id")      ? o.getString("dj_role_id")                 : null,
-                        o.has("volume")          ? o.getInt("volume")                        : 100,
-                        o.has("default_playlist")? o.getString("default_playlist")           : null,
-                        o.has("repeat_mode")     ? o.getEnum(RepeatMode.class, "repeat_mode"): RepeatMode.OFF,
-                        o.has("prefix")          ? o.getString("prefix")                     : null,
-                        o.has("skip_ratio")      ? o.getDouble("skip_ratio")                 : -1,
-                        o.has("queue_type")      ? o.getEnum(QueueType.class, "queue_type")  : QueueType.FAIR));
-            });
-        } catch (NoSuchFileException e) {
-            // create an empty json file
-            try {
-                LOG.info("serversettings.json will be created in " + OtherUtil.getPath("serversettings.json").toAbsolutePath());
-                Files.write(OtherUtil.getPath("serversettings.json"), new JSONObject().toString(4).getBytes());
-            } catch(IOException ex) {
-                LOG.warn("Failed to create new settings file: "+ex);
-            }
-            return;
-        } catch(IOException | JSONException e) {
-            LOG.warn("Failed to load server settings: "+e);
-        }
-
-        LOG.info("serversettings.json loaded from " + OtherUtil.getPath("serversettings.json").toAbsolutePath());
+        for(int i = 0; i < STRIPES; i++)
+            stripes[i] = new Stripe(cacheSize <= 0 ? 0 : (cacheSize + STRIPES - 1) / STRIPES);
+        this.store = store;
+        this.writeDelay = writeDelay;
+        this.writer = Executors.newSingleThreadScheduledExecutor(r -> 
+        {
+            Thread t = new Thread(r, "settings-writer");
+            t.setDaemon(true);
+            return t;
+        });
     }
 
     /**
@@ -92,44 +92,201 @@ public class SettingsManager implements GuildSettingsManager<Settings>
 
     public Settings getSettings(long guildId)
     {
-        return settings.computeIfAbsent(guildId, id -> createDefaultSettings());
+        Stripe stripe = stripes[stripe(guildId)];
+        synchronized(stripe)
+        {
+            Settings s = stripe.get(guildId);
+            if(s == null)
+            {
+                // settings that were evicted before their changes were written are newer than the store
+                s = dirty.get(guildId);
+                if(s == null)
+                    s = writing.get(guildId);
+                if(s == null)
+                    s = loadSettings(guildId);
+                if(s == null)
+                    return createDefaultSettings(guildId);
+                stripe.put(guildId, s);
+            }
+            return s;
+        }
+    }
+    
+    /**
+     * Writes any pending changes right away and stops the background writer.
+     * Only the first call does anything, so it can be both called on a
+     * regular shutdown and registered as a shutdown hook.
+     */
+    public void shutdown()
+    {
+        if(!closed.compareAndSet(false, true))
+            return;
+        writer.shutdown();
+        flush();
+        store.close();
     }
 
-    private Settings createDefaultSettings()
+    private static int stripe(long guildId)
     {
-        return new Settings(this, 0, 0, 0, 100, null, RepeatMode.OFF, null, -1, QueueType.FAIR);
+        // the low bits of snowflakes are a counter, so mix the whole id before picking a stripe
+        return (int) ((guildId * 0x9E3779B97F4A7C15L) >>> (64 - STRIPE_BITS));
     }
 
-    protected void writeSettings()
+    /**
+     * @return the guild's stored settings, or null if it has none
+     */
+    private Settings loadSettings(long guildId)
     {
-        JSONObject obj = new JSONObject();
-        settings.keySet().stream().forEach(key -> {
-            JSONObject o = new JSONObject();
-            Settings s = settings.get(key);
-            if(s.textId!=0)
-                o.put("text_channel_id", Long.toString(s.textId));
-            if(s.voiceId!=0)
-                o.put("voice_channel_id", Long.toString(s.voiceId));
-            if(s.roleId!=0)
-                o.put("dj_role_id", Long.toString(s.roleId));
-            if(s.getVolume()!=100)
-                o.put("volume",s.getVolume());
-            if(s.getDefaultPlaylist() != null)
-                o.put("default_playlist", s.getDefaultPlaylist());
-            if(s.getRepeatMode()!=RepeatMode.OFF)
-                o.put("repeat_mode", s.getRepeatMode());
-            if(s.getPrefix() != null)
-                o.put("prefix", s.getPrefix());
-            if(s.getSkipRatio() != -1)
-                o.put("skip_ratio", s.getSkipRatio());
-            if(s.getQueueType() != QueueType.FAIR)
-                o.put("queue_type", s.getQueueType().name());
-            obj.put(Long.toString(key), o);
-        });
         try {
-            Files.write(OtherUtil.getPath(SETTINGS_FILE), obj.toString(4).getBytes());
+            JSONObject o = store.load(guildId);
+            if(o != null)
+                return fromJson(guildId, o);
+        } catch(IOException | JSONException e) {
+            LOG.warn("Failed to load settings for server "+guildId+": "+e);
+        }
+        return null;
+    }
+
+    private Settings createDefaultSettings(long guildId)
+    {
+        return new Settings(this, guildId, 0, 0, 0, 100, null, RepeatMode.OFF, null, -1, QueueType.FAIR);
+    }
+
+    /**
+     * Marks a guild's settings as changed and schedules them to be written.
+     * Changes made within the write delay are written together, off the
+     * calling thread.
+     * 
+     * @param changed the settings that changed
+     */
+    protected void writeSettings(Settings changed)
+    {
+        Stripe stripe = stripes[stripe(changed.getGuildId())];
+        synchronized(stripe)
+        {
+            // marked first, so the settings can be found even if they're evicted as soon as the lock is released
+            dirty.put(changed.getGuildId(), changed);
+            // a caller may have held on to settings that were evicted and loaded again since
+            stripe.put(changed.getGuildId(), changed);
+        }
+        if(writePending.compareAndSet(false, true))
+        {
+            try
+            {
+                writer.schedule(this::flush, writeDelay, TimeUnit.MILLISECONDS);
+            }
+            catch(RejectedExecutionException ex)
+            {
+                // already shut down
+                flush();
+            }
+        }
+    }
+    
+    /**
+     * Tries a failed write again after the write delay (but at least after a
+     * second), unless the writer was shut down
+     */
+    private void retryLater()
+    {
+        if(!writePending.compareAndSet(false, true))
+            return;
+        try
+        {
+            writer.schedule(this::flush, Math.max(writeDelay, 1000), TimeUnit.MILLISECONDS);
+        }
+        catch(RejectedExecutionException ex)
+        {
+            writePending.set(false);
+        }
+    }
+    
+    private synchronized void flush()
+    {
+        writePending.set(false);
+        // settings stay findable in 'writing' until the store has them
+        for(Map.Entry<Long,Settings> entry: dirty.entrySet())
+        {
+            writing.put(entry.getKey(), entry.getValue());
+            dirty.remove(entry.getKey(), entry.getValue());
+        }
+        if(writing.isEmpty())
+            return;
+        Map<Long, JSONObject> changed = new HashMap<>();
+        writing.forEach((id, s) -> changed.put(id, toJson(s)));
+        try {
+            store.write(changed);
         } catch(IOException ex){
-            LOG.warn("Failed to write to file: "+ex);
+            // keep them marked and try again, in case nothing else changes
+            LOG.warn("Failed to write settings: "+ex);
+            writing.forEach(dirty::putIfAbsent);
+            writing.clear();
+            retryLater();
+            return;
+        }
+        writing.clear();
+    }
+    
+    private Settings fromJson(long guildId, JSONObject o)
+    {
+        // Legacy version support: On versions 0.3.3 and older, the repeat mode was represented as a boolean.
+        if (!o.has("repeat_mode") && o.has("repeat") && o.getBoolean("repeat"))
+            o.put("repeat_mode", RepeatMode.ALL);
+        
+        return new Settings(this, guildId,
+                o.has("text_channel_id") ? o.getString("text_channel_id")            : null,
+                o.has("voice_channel_id")? o.getString("voice_channel_id")           : null,
+                o.has("dj_role_id")      ? o.getString("dj_role_id")                 : null,
+                o.has("volume")          ? o.getInt("volume")                        : 100,
+                o.has("default_playlist")? o.getString("default_playlist")           : null,
+                o.has("repeat_mode")     ? o.getEnum(RepeatMode.class, "repeat_mode"): RepeatMode.OFF,
+                o.has("prefix")          ? o.getString("prefix")                     : null,
+                o.has("skip_ratio")      ? o.getDouble("skip_ratio")                 : -1,
+                o.has("queue_type")      ? o.getEnum(QueueType.class, "queue_type")  : QueueType.FAIR);
+    }
+    
+    private JSONObject toJson(Settings s)
+    {
+        JSONObject o = new JSONObject();
+        if(s.textId!=0)
+            o.put("text_channel_id", Long.toString(s.textId));
+        if(s.voiceId!=0)
+            o.put("voice_channel_id", Long.toString(s.voiceId));
+        if(s.roleId!=0)
+            o.put("dj_role_id", Long.toString(s.roleId));
+        if(s.getVolume()!=100)
+            o.put("volume",s.getVolume());
+        if(s.getDefaultPlaylist() != null)
+            o.put("default_playlist", s.getDefaultPlaylist());
+        if(s.getRepeatMode()!=RepeatMode.OFF)
+            o.put("repeat_mode", s.getRepeatMode());
+        if(s.getPrefix() != null)
+            o.put("prefix", s.getPrefix());
+        if(s.getSkipRatio() != -1)
+            o.put("skip_ratio", s.getSkipRatio());
+        if(s.getQueueType() != QueueType.FAIR)
+            o.put("queue_type", s.getQueueType().name());
+        return o;
+    }
+    
+    /**
+     * One lock's share of the cached settings, evicting its least recently
+     * used guild when it is full
+     */
+    private static class Stripe extends LinkedHashMap<Long,Settings>
+    {
+        private final int capacity;
+        
+        private Stripe(int capacity)
+        {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+        
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long,Settings> eldest)
+        {
+            return capacity > 0 && size() > capacity;
         }
     }
 }
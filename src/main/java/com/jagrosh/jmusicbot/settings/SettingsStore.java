@@ -0,0 +1,67 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.settings;
+
+import java.io.IOException;
+import java.util.Map;
+import org.json.JSONObject;
+
+/**
+ * Where the {@link SettingsManager} keeps the settings of every guild. Each
+ * guild is stored as one JSON record; a guild without a record (or with an
+ * empty one) uses the default settings.
+ */
+public interface SettingsStore
+{
+    /**
+     * @return the records of every guild that has any
+     * @throws IOException if the store can't be read
+     */
+    Map<Long, JSONObject> loadAll() throws IOException;
+    
+    /**
+     * @param guildId the guild
+     * @return the guild's record, or null if it has none
+     * @throws IOException if the store can't be read
+     */
+    JSONObject load(long guildId) throws IOException;
+    
+    /**
+     * Stores the given records, replacing the earlier records of the same
+     * guilds. An empty record removes the guild's record.
+     * 
+     * @param records the changed records by guild id
+     * @throws IOException if the store can't be written
+     */
+    void write(Map<Long, JSONObject> records) throws IOException;
+    
+    /**
+     * Releases any open files
+     */
+    void close();
+    
+    /**
+     * Creates the store for the settingsstore config option
+     * 
+     * @param type "json" for the single serversettings.json file, or "log" for
+     *             the per-guild record log
+     * @return the store
+     */
+    static SettingsStore create(String type)
+    {
+        if("log".equalsIgnoreCase(type))
+            return new LogSettingsStore();
+        return new JsonSettingsStore();
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.utils;
+
+/**
+ * A thread-safe map from primitive longs (usually snowflake ids) to values.
+ * Keys are spread over independently locked stripes, and every stripe is an
+ * open-addressing table, so lookups and updates don't box the key or
+ * allocate entries.
+ *
+ * @param <V> the type of the values
+ */
+public class ConcurrentLongMap<V>
+{
+    private final static int STRIPE_BITS = 4, STRIPES = 1 << STRIPE_BITS;
+    private final Stripe<V>[] stripes;
+    
+    @SuppressWarnings("unchecked")
+    public ConcurrentLongMap()
+    {
+        stripes = new Stripe[STRIPES];
+        for(int i = 0; i < STRIPES; i++)
+            stripes[i] = new Stripe<>();
+    }
+    
+    public V get(long key)
+    {
+        Stripe<V> stripe = stripe(key);
+        synchronized(stripe)
+        {
+            return stripe.get(key);
+        }
+    }
+    
+    /**
+     * @param key   the key
+     * @param value the value, not null
+     * @return the previous value for the key, or null if there was none
+     */
+    public V put(long key, V value)
+    {
+        if(value == null)
+            throw new NullPointerException();
+        Stripe<V> stripe = stripe(key);
+        synchronized(stripe)
+        {
+            return stripe.put(key, value);
+        }
+    }
+    
+    public V remove(long key)
+    {
+        Stripe<V> stripe = stripe(key);
+        synchronized(stripe)
+        {
+            return stripe.remove(key, null);
+        }
+    }
+    
+    /**
+     * Removes the key only if it is currently mapped to the given value
+     * 
+     * @param key   the key
+     * @param value the expected value
+     * @return if the key was removed
+     */
+    public boolean remove(long key, V value)
+    {
+        Stripe<V> stripe = stripe(key);
+        synchronized(stripe)
+        {
+            return stripe.remove(key, value) != null;
+        }
+    }
+    
+    public int size()
+    {
+        int size = 0;
+        for(Stripe<V> stripe: stripes)
+            synchronized(stripe)
+            {
+                size += stripe.size;
+            }
+        return size;
+    }
+    
+    /**
+     * Calls the consumer for every entry, one stripe at a time while holding
+     * that stripe's lock. The consumer must not modify the map; collect what
+     * needs changing and do it afterwards.
+     * 
+     * @param consumer the consumer
+     */
+    public void forEach(LongObjectConsumer<? super V> consumer)
+    {
+        for(Stripe<V> stripe: stripes)
+            synchronized(stripe)
+            {
+                for(int i = 0; i < stripe.keys.length; i++)
+                    if(stripe.values[i] != null)
+                        consumer.accept(stripe.keys[i], stripe.values[i]);
+            }
+    }
+    
+    private Stripe<V> stripe(long key)
+    {
+        return stripes[(int)(mix(key) >>> (64 - STRIPE_BITS))];
+    }
+    
+    private static long mix(long key)
+    {
+        // snowflakes share their high (timestamp) bits, so spread all of them out
+        return key * 0x9E3779B97F4A7C15L;
+    }
+    
+    public interface LongObjectConsumer<V>
+    {
+        void accept(long key, V value);
+    }
+    
+    private static class Stripe<V>
+    {
+        private final static int MIN_CAPACITY = 8;
+        
+        private long[] keys = new long[MIN_CAPACITY];
+        private V[] values = newArray(MIN_CAPACITY);
+        private int size;
+        
+        private V get(long key)
+        {
+            int i = find(key);
+            return i < 0 ? null : values[i];
+        }
+        
+        private V put(long key, V value)
+        {
+            int i = find(key);
+            if(i >= 0)
+            {
+                V old = values[i];
+                values[i] = value;
+                return old;
+            }
+            if((size + 1) * 4 > keys.length * 3)
+                resize(keys.length << 1);
+            insert(key, value);
+            size++;
+            return null;
+        }
+        
+        private V remove(long key, V expected)
+        {
+            int i = find(key);
+            if(i < 0 || (expected != null && values[i] != expected))
+                return null;
+            V old = values[i];
+            delete(i);
+            size--;
+            if(keys.length > MIN_CAPACITY && size * 8 < keys.length)
+                resize(keys.length >> 1);
+            return old;
+        }
+        
+        private int find(long key)
+        {
+            int mask = keys.length - 1;
+            for(int i = slot(key, mask); values[i] != null; i = (i + 1) & mask)
+                if(keys[i] == key)
+                    return i;
+            return -1;
+        }
+        
+        private void insert(long key, V value)
+        {
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while(values[i] != null)
+                i = (i + 1) & mask;
+            keys[i] = key;
+            values[i] = value;
+        }
+        
+        /**
+         * Empties a slot and moves later entries of the same probe run back
+         * into it, so lookups never need tombstones
+         */
+        private void delete(int i)
+        {
+            int mask = keys.length - 1;
+            int gap = i;
+            for(int j = (i + 1) & mask; values[j] != null; j = (j + 1) & mask)
+            {
+                int home = slot(keys[j], mask);
+                // move the entry if its home slot isn't between the gap and where it is now
+                if(((j - home) & mask) >= ((j - gap) & mask))
+                {
+                    keys[gap] = keys[j];
+                    values[gap] = values[j];
+                    gap = j;
+                }
+            }
+            keys[gap] = 0;
+            values[gap] = null;
+        }
+        
+        private void resize(int capacity)
+        {
+            long[] oldKeys = keys;
+            V[] oldValues = values;
+            keys = new long[capacity];
+            values = newArray(capacity);
+            for(int i = 0; i < oldKeys.length; i++)
+                if(oldValues[i] != null)
+                    insert(oldKeys[i], oldValues[i]);
+        }
+        
+        private static int slot(long key, int mask)
+        {
+            // the low bits of the mix pick the slot, the high bits picked the stripe
+            long h = mix(key);
+            return (int)(h ^ (h >>> 29)) & mask;
+        }
+        
+        @SuppressWarnings("unchecked")
+        private static <V> V[] newArray(int size)
+        {
+            return (V[]) new Object[size];
+        }
+    }
+}
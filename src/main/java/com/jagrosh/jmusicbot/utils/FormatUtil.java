@@ -62,14 +62,29 @@ public class FormatUtil {
     }
     
     public static String volumeIcon(int volume)
+    {
+        switch(volumeLevel(volume))
+        {
+            case 0: return "\uD83D\uDD07"; // muted speaker
+            case 1: return "\uD83D\uDD08"; // speaker
+            case 2: return "\uD83D\uDD09"; // speaker, one wave
+            default: return "\uD83D\uDD0A"; // speaker, three waves
+        }
+    }
+    
+    /**
+     * @param volume the volume
+     * @return which of the four volume icons the volume is shown with, from 0 to 3
+     */
+    public static int volumeLevel(int volume)
     {
         if(volume == 0)
-            return "\uD83D\uDD07"; // 🔇
+            return 0;
         if(volume < 30)
-            return "\uD83D\uDD08"; // 🔈
+            return 1;
         if(volume < 70)
-            return "\uD83D\uDD09"; // 🔉
-        return "\uD83D\uDD0A";     // 🔊
+            return 2;
+        return 3;
     }
     
     public static String listOfTChannels(List<TextChannel> list, String query)
@@ -0,0 +1,103 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.utils;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs tasks on a shared executor, one at a time per key: tasks with the same
+ * key run in the order they were submitted, tasks with different keys run in
+ * parallel. Each key only takes up a thread while it has tasks waiting, and
+ * gives the thread back after every task so that busy keys can't starve the
+ * others.
+ */
+public class KeyedExecutor
+{
+    private final static Logger LOG = LoggerFactory.getLogger(KeyedExecutor.class);
+    
+    private final Executor executor;
+    private final ConcurrentHashMap<Long, Lane> lanes = new ConcurrentHashMap<>();
+    
+    public KeyedExecutor(Executor executor)
+    {
+        this.executor = executor;
+    }
+    
+    public void execute(long key, Runnable task)
+    {
+        lanes.compute(key, (k, lane) -> 
+        {
+            if(lane == null)
+            {
+                lane = new Lane(k);
+                executor.execute(lane);
+            }
+            lane.tasks.add(task);
+            return lane;
+        });
+    }
+    
+    /**
+     * @return the number of keys that have tasks running or waiting
+     */
+    public int getActiveKeys()
+    {
+        return lanes.size();
+    }
+    
+    private class Lane implements Runnable
+    {
+        private final long key;
+        private final Queue<Runnable> tasks = new ArrayDeque<>(); // guarded by the lanes map
+        
+        private Lane(long key)
+        {
+            this.key = key;
+        }
+        
+        @Override
+        public void run()
+        {
+            Runnable[] next = new Runnable[1];
+            lanes.computeIfPresent(key, (k, lane) -> 
+            {
+                next[0] = tasks.poll();
+                return lane;
+            });
+            try
+            {
+                next[0].run();
+            }
+            catch(Throwable t)
+            {
+                LOG.error("Task for " + key + " failed", t);
+            }
+            finally
+            {
+                lanes.computeIfPresent(key, (k, lane) -> 
+                {
+                    if(tasks.isEmpty())
+                        return null;
+                    executor.execute(this);
+                    return lane;
+                });
+            }
+        }
+    }
+}
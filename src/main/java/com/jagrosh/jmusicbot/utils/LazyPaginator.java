@@ -0,0 +1,250 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.utils;
+
+import com.jagrosh.jdautilities.commons.waiter.EventWaiter;
+import com.jagrosh.jdautilities.menu.Menu;
+import java.awt.Color;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.MessageBuilder;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageChannel;
+import net.dv8tion.jda.api.entities.Role;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.events.message.react.MessageReactionAddEvent;
+import net.dv8tion.jda.api.exceptions.PermissionException;
+
+/**
+ * A paginator like the one from JDA-Utilities, except that items are only
+ * rendered for the page being shown. The number of items is read again
+ * every time a page is shown, so it can page through a list that changes
+ * while it is open, like a queue.
+ * <p>
+ * The stock paginator takes every item's text up front and fixes the page
+ * count when it's built, so showing a large queue means rendering all of it,
+ * and a snapshot of just one page couldn't be paged through at all. Here the
+ * renderer is asked for one page at a time and should copy that page from
+ * its source in one go (see {@code AbstractQueue.getRange}), since the menu
+ * runs on the event waiter's thread while the source keeps changing.
+ */
+public class LazyPaginator extends Menu
+{
+    public final static String LEFT = "\u25C0";  // left-pointing triangle
+    public final static String STOP = "\u23F9";  // stop button
+    public final static String RIGHT = "\u25B6"; // right-pointing triangle
+
+    private final IntSupplier count;
+    private final BiFunction<Integer,Integer,List<String>> renderer;
+    private final BiFunction<Integer,Integer,String> text;
+    private final Color color;
+    private final int itemsPerPage;
+    private final boolean numberItems;
+    private final Consumer<Message> finalAction;
+
+    private LazyPaginator(EventWaiter waiter, Set<User> users, Set<Role> roles, long timeout, TimeUnit unit,
+            IntSupplier count, BiFunction<Integer,Integer,List<String>> renderer, BiFunction<Integer,Integer,String> text,
+            Color color, int itemsPerPage, boolean numberItems, Consumer<Message> finalAction)
+    {
+        super(waiter, users, roles, timeout, unit);
+        this.count = count;
+        this.renderer = renderer;
+        this.text = text;
+        this.color = color;
+        this.itemsPerPage = itemsPerPage;
+        this.numberItems = numberItems;
+        this.finalAction = finalAction;
+    }
+
+    @Override
+    public void display(MessageChannel channel)
+    {
+        paginate(channel, 1);
+    }
+
+    @Override
+    public void display(Message message)
+    {
+        paginate(message, 1);
+    }
+
+    public void paginate(MessageChannel channel, int pageNum)
+    {
+        int page = clamp(pageNum);
+        channel.sendMessage(render(page)).queue(m -> pagination(m, page));
+    }
+
+    public void paginate(Message message, int pageNum)
+    {
+        int page = clamp(pageNum);
+        message.editMessage(render(page)).queue(m -> pagination(m, page));
+    }
+
+    private void pagination(Message message, int page)
+    {
+        if(pages() <= 1)
+        {
+            finalAction.accept(message);
+            return;
+        }
+        message.addReaction(LEFT).queue();
+        message.addReaction(STOP).queue();
+        message.addReaction(RIGHT).queue(v -> waitForReaction(message, page), t -> waitForReaction(message, page));
+    }
+
+    private void waitForReaction(Message message, int page)
+    {
+        waiter.waitForEvent(MessageReactionAddEvent.class,
+                e -> e.getMessageIdLong() == message.getIdLong() && isValidReaction(e),
+                e -> handleReaction(e, message, page),
+                timeout, unit, () -> finalAction.accept(message));
+    }
+
+    private boolean isValidReaction(MessageReactionAddEvent event)
+    {
+        String name = event.getReactionEmote().getName();
+        return (LEFT.equals(name) || STOP.equals(name) || RIGHT.equals(name))
+                && isValidUser(event.getUser(), event.isFromGuild() ? event.getGuild() : null);
+    }
+
+    private void handleReaction(MessageReactionAddEvent event, Message message, int page)
+    {
+        String name = event.getReactionEmote().getName();
+        if(STOP.equals(name))
+        {
+            finalAction.accept(message);
+            return;
+        }
+        int pages = pages();
+        final int next;
+        if(LEFT.equals(name))
+            next = page <= 1 ? pages : page - 1;
+        else
+            next = page >= pages ? 1 : page + 1;
+        try
+        {
+            event.getReaction().removeReaction(event.getUser()).queue();
+        }
+        catch(PermissionException ignore) {}
+        message.editMessage(render(next)).queue(m -> waitForReaction(m, next));
+    }
+
+    private Message render(int pageNum)
+    {
+        // the list may have shrunk since the page was picked, so it's checked against the count read here
+        int pages = pages();
+        int page = Math.max(1, Math.min(pages, pageNum));
+        int start = (page - 1) * itemsPerPage;
+        List<String> items = renderer.apply(start, start + itemsPerPage);
+        StringBuilder sb = new StringBuilder();
+        for(int i = 0; i < items.size(); i++)
+        {
+            if(numberItems)
+                sb.append("`").append(start + i + 1).append(".` ");
+            sb.append(items.get(i)).append("\n");
+        }
+        MessageBuilder mb = new MessageBuilder();
+        String content = text.apply(page, pages);
+        if(content != null)
+            mb.setContent(content);
+        return mb.setEmbeds(new EmbedBuilder()
+                .setColor(color)
+                .setDescription(sb.toString().trim())
+                .setFooter("Page " + page + "/" + pages, null)
+                .build()).build();
+    }
+
+    private int pages()
+    {
+        return Math.max(1, (count.getAsInt() + itemsPerPage - 1) / itemsPerPage);
+    }
+
+    private int clamp(int page)
+    {
+        return Math.max(1, Math.min(pages(), page));
+    }
+
+    public static class Builder extends Menu.Builder<Builder, LazyPaginator>
+    {
+        private IntSupplier count = () -> 0;
+        private BiFunction<Integer,Integer,List<String>> renderer = (from, to) -> Collections.emptyList();
+        private BiFunction<Integer,Integer,String> text = (page, pages) -> null;
+        private Color color = null;
+        private int itemsPerPage = 10;
+        private boolean numberItems = true;
+        private Consumer<Message> finalAction = m -> m.delete().queue();
+
+        @Override
+        public LazyPaginator build()
+        {
+            if(waiter == null)
+                throw new IllegalArgumentException("Must set an EventWaiter");
+            return new LazyPaginator(waiter, users, roles, timeout, unit, count, renderer, text, color, itemsPerPage, numberItems, finalAction);
+        }
+
+        /**
+         * Sets the items to page through
+         *
+         * @param count    supplies the current number of items
+         * @param renderer renders the items from the first index up to the
+         *                 second, only called for the page being shown; it
+         *                 may return fewer if the list has shrunk
+         * @return this builder
+         */
+        public Builder setItems(IntSupplier count, BiFunction<Integer,Integer,List<String>> renderer)
+        {
+            this.count = count;
+            this.renderer = renderer;
+            return this;
+        }
+
+        public Builder setText(BiFunction<Integer,Integer,String> text)
+        {
+            this.text = text;
+            return this;
+        }
+
+        public Builder setColor(Color color)
+        {
+            this.color = color;
+            return this;
+        }
+
+        public Builder setItemsPerPage(int itemsPerPage)
+        {
+            if(itemsPerPage < 1)
+                throw new IllegalArgumentException("There must be at least one item per page");
+            this.itemsPerPage = itemsPerPage;
+            return this;
+        }
+
+        public Builder useNumberedItems(boolean numberItems)
+        {
+            this.numberItems = numberItems;
+            return this;
+        }
+
+        public Builder setFinalAction(Consumer<Message> finalAction)
+        {
+            this.finalAction = finalAction;
+            return this;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.utils;
+
+import com.jagrosh.jmusicbot.metrics.LoadTimer;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A scheduled executor with named daemon threads that keeps track of how
+ * late its tasks start (time spent waiting past their scheduled time, e.g.
+ * behind a slow task) and how long they take to run.
+ */
+public class MonitoredScheduler extends ScheduledThreadPoolExecutor
+{
+    private final String name;
+    private final LoadTimer delays = new LoadTimer();
+    private final LoadTimer runs = new LoadTimer();
+    private final ThreadLocal<Long> started = new ThreadLocal<>();
+    
+    public MonitoredScheduler(String name, int threads)
+    {
+        super(threads, daemonFactory(name));
+        this.name = name;
+        setRemoveOnCancelPolicy(true);
+    }
+    
+    public String getName()
+    {
+        return name;
+    }
+    
+    /**
+     * @return the number of tasks waiting, including periodic tasks waiting
+     *         for their next run
+     */
+    public int getQueueDepth()
+    {
+        return getQueue().size();
+    }
+    
+    public LoadTimer getDelays()
+    {
+        return delays;
+    }
+    
+    public LoadTimer getRuns()
+    {
+        return runs;
+    }
+    
+    @Override
+    protected void beforeExecute(Thread t, Runnable r)
+    {
+        super.beforeExecute(t, r);
+        // the task's delay is still relative to the run that is starting now
+        if(r instanceof Delayed)
+            delays.record(Math.max(0, -((Delayed) r).getDelay(TimeUnit.NANOSECONDS)));
+        started.set(System.nanoTime());
+    }
+    
+    @Override
+    protected void afterExecute(Runnable r, Throwable t)
+    {
+        Long start = started.get();
+        if(start != null)
+            runs.record(System.nanoTime() - start);
+        started.remove();
+        super.afterExecute(r, t);
+    }
+    
+    private static ThreadFactory daemonFactory(String name)
+    {
+        AtomicInteger count = new AtomicInteger();
+        return r -> 
+        {
+            Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
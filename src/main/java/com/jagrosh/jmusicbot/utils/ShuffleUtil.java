@@ -0,0 +1,176 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot.utils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntUnaryOperator;
+import java.util.function.ToLongFunction;
+
+/**
+ * Unbiased (Fisher-Yates) shuffling. Randomness comes from an
+ * {@link IntUnaryOperator} that maps a bound to a random number below it;
+ * by default that's the calling thread's {@link ThreadLocalRandom}, and
+ * {@link #seeded(long)} gives a reproducible one for tests.
+ */
+public class ShuffleUtil
+{
+    private final static IntUnaryOperator THREAD_LOCAL = bound -> ThreadLocalRandom.current().nextInt(bound);
+    
+    /**
+     * @return randomness from the calling thread's {@link ThreadLocalRandom}
+     */
+    public static IntUnaryOperator random()
+    {
+        return THREAD_LOCAL;
+    }
+    
+    /**
+     * @param seed the seed
+     * @return reproducible randomness; not thread-safe
+     */
+    public static IntUnaryOperator seeded(long seed)
+    {
+        SplittableRandom random = new SplittableRandom(seed);
+        return random::nextInt;
+    }
+    
+    /**
+     * Adds an item to a list that is kept shuffled while it fills up (an
+     * inside-out shuffle): the item is appended and then trades places with
+     * a random element, itself included. This is O(1) on an ArrayList,
+     * where inserting at a random index would move half the list every time.
+     * 
+     * @param list   the list, which should be {@link RandomAccess}
+     * @param item   the item to add
+     * @param random the randomness
+     */
+    public static <T> void addRandomly(List<T> list, T item, IntUnaryOperator random)
+    {
+        list.add(item);
+        int last = list.size() - 1;
+        list.set(last, list.set(random.applyAsInt(last + 1), item));
+    }
+    
+    public static <T> void addRandomly(List<T> list, T item)
+    {
+        addRandomly(list, item, THREAD_LOCAL);
+    }
+    
+    public static void shuffle(int[] array, IntUnaryOperator random)
+    {
+        for(int i = array.length - 1; i > 0; i--)
+        {
+            int j = random.applyAsInt(i + 1);
+            int tmp = array[i];
+            array[i] = array[j];
+            array[j] = tmp;
+        }
+    }
+    
+    public static void shuffle(Object[] array, IntUnaryOperator random)
+    {
+        for(int i = array.length - 1; i > 0; i--)
+        {
+            int j = random.applyAsInt(i + 1);
+            Object tmp = array[i];
+            array[i] = array[j];
+            array[j] = tmp;
+        }
+    }
+    
+    public static <T> void shuffle(List<T> list)
+    {
+        shuffle(list, THREAD_LOCAL);
+    }
+    
+    @SuppressWarnings("unchecked")
+    public static <T> void shuffle(List<T> list, IntUnaryOperator random)
+    {
+        if(list instanceof RandomAccess)
+        {
+            for(int i = list.size() - 1; i > 0; i--)
+            {
+                int j = random.applyAsInt(i + 1);
+                list.set(i, list.set(j, list.get(i)));
+            }
+            return;
+        }
+        Object[] array = list.toArray();
+        shuffle(array, random);
+        ListIterator<T> it = list.listIterator();
+        for(Object item: array)
+        {
+            it.next();
+            it.set((T) item);
+        }
+    }
+    
+    /**
+     * Shuffles the elements at the given positions of a list among those
+     * positions, leaving the rest of the list where it is
+     * 
+     * @param list      the list
+     * @param positions the positions to shuffle, each at most once
+     * @param random    the randomness
+     */
+    public static <T> void shuffleAt(List<T> list, int[] positions, IntUnaryOperator random)
+    {
+        Object[] items = new Object[positions.length];
+        for(int i = 0; i < positions.length; i++)
+            items[i] = list.get(positions[i]);
+        shuffle(items, random);
+        write(list, positions, items);
+    }
+    
+    /**
+     * Shuffles a list while keeping the order of the keys: every element
+     * only trades places with elements of the same key, so a round-robin
+     * order of requesters stays round-robin
+     * 
+     * @param list   the list
+     * @param key    the key of an element
+     * @param random the randomness
+     */
+    public static <T> void fairShuffle(List<T> list, ToLongFunction<T> key, IntUnaryOperator random)
+    {
+        Map<Long, int[]> groups = new HashMap<>();
+        Map<Long, Integer> sizes = new HashMap<>();
+        for(T item: list)
+            sizes.merge(key.applyAsLong(item), 1, Integer::sum);
+        sizes.forEach((k, size) -> groups.put(k, new int[size]));
+        Map<Long, Integer> filled = new HashMap<>();
+        for(int i = 0; i < list.size(); i++)
+        {
+            long k = key.applyAsLong(list.get(i));
+            int n = filled.merge(k, 1, Integer::sum) - 1;
+            groups.get(k)[n] = i;
+        }
+        for(int[] positions: groups.values())
+            if(positions.length > 1)
+                shuffleAt(list, positions, random);
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static <T> void write(List<T> list, int[] positions, Object[] items)
+    {
+        for(int i = 0; i < positions.length; i++)
+            list.set(positions[i], (T) items[i]);
+    }
+}
@@ -30,6 +30,17 @@ public class TimeUtil
         return (hours>0 ? hours+":" : "") + (minutes<10 ? "0"+minutes : minutes) + ":" + (seconds<10 ? "0"+seconds : seconds);
     }
 
+    /**
+     * @param total the summed up durations
+     * @param count how many durations were summed up
+     * @return the average duration, in the unit of the total, or 0 if there
+     *         were none
+     */
+    public static long average(long total, long count)
+    {
+        return count == 0 ? 0 : total / count;
+    }
+
     /**
      * Parses a seek time string into milliseconds and determines if it's relative.
      * Supports "colon time" (HH:MM:SS) or "unit time" (1h20m)
@@ -0,0 +1,153 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import com.jagrosh.jmusicbot.audio.AudioFrameSender;
+import com.sedmelluq.discord.lavaplayer.track.playback.AudioFrame;
+import com.sedmelluq.discord.lavaplayer.track.playback.AudioFrameProvider;
+import com.sedmelluq.discord.lavaplayer.track.playback.MutableAudioFrame;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+public class AudioFrameSenderTest
+{
+    @Test
+    public void providesFrameData()
+    {
+        AudioFrameSender sender = new AudioFrameSender(new FakeProvider(new byte[]{1, 2, 3}), () -> true);
+        for(int i=0; i<3; i++)
+        {
+            assertTrue(sender.canProvide());
+            ByteBuffer buffer = sender.provide20MsAudio();
+            assertEquals(3, buffer.remaining());
+            assertEquals(1, buffer.get());
+            assertEquals(2, buffer.get());
+            assertEquals(3, buffer.get());
+        }
+    }
+    
+    @Test
+    public void noFrame()
+    {
+        assertFalse(new AudioFrameSender(new FakeProvider(null), () -> true).canProvide());
+    }
+    
+    @Test
+    public void countsUnderruns()
+    {
+        FakeProvider provider = new FakeProvider(new byte[]{1});
+        boolean[] playing = {true};
+        AudioFrameSender sender = new AudioFrameSender(provider, () -> playing[0]);
+        provider.available = false;
+        sender.canProvide(); // still loading the track
+        provider.available = true;
+        sender.canProvide();
+        provider.available = false;
+        sender.canProvide();
+        sender.canProvide();
+        provider.available = true;
+        sender.canProvide();
+        provider.available = false;
+        sender.canProvide();
+        playing[0] = false;
+        sender.canProvide(); // paused
+        assertEquals(2, sender.getFramesSent());
+        assertEquals(2, sender.getUnderruns());
+        assertEquals(3, sender.getFramesMissed());
+        assertEquals(5, sender.getMisses());
+    }
+    
+    @Test
+    public void totalsKeepDroppedSenders()
+    {
+        AudioFrameSender.Totals totals = new AudioFrameSender.Totals();
+        AudioFrameSender first = new AudioFrameSender(new FakeProvider(new byte[]{1, 2}), () -> true, totals);
+        sendFrames(first, 3);
+        AudioFrameSender second = new AudioFrameSender(new FakeProvider(null), () -> true, totals);
+        sendFrames(second, 2);
+        assertEquals(3, totals.getFramesSent());
+        assertEquals(2, totals.getMisses());
+        assertEquals(0, second.getFramesSent());
+        assertEquals(6, totals.getBytesSent());
+        assertEquals(6, first.getBytesSent());
+    }
+    
+    @Test
+    public void steadyStateDoesNotAllocate()
+    {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+        
+        AudioFrameSender sender = new AudioFrameSender(new FakeProvider(new byte[160]), () -> true);
+        long thread = Thread.currentThread().getId();
+        sendFrames(sender, 10_000); // warm up
+        long before = threads.getThreadAllocatedBytes(thread);
+        sendFrames(sender, 100_000);
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+        // allow for the few bytes the measurement itself may allocate, far below one byte per frame
+        assertTrue("allocated "+allocated+" bytes", allocated < 1024);
+    }
+    
+    private static int sendFrames(AudioFrameSender sender, int frames)
+    {
+        int total = 0;
+        for(int i=0; i<frames; i++)
+            if(sender.canProvide())
+                total += sender.provide20MsAudio().remaining();
+        return total;
+    }
+    
+    private static class FakeProvider implements AudioFrameProvider
+    {
+        private final byte[] data;
+        private boolean available = true;
+        
+        private FakeProvider(byte[] data)
+        {
+            this.data = data;
+        }
+        
+        @Override
+        public AudioFrame provide()
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public AudioFrame provide(long timeout, TimeUnit unit)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean provide(MutableAudioFrame targetFrame)
+        {
+            if(data == null || !available)
+                return false;
+            targetFrame.store(data, 0, data.length);
+            return true;
+        }
+
+        @Override
+        public boolean provide(MutableAudioFrame targetFrame, long timeout, TimeUnit unit)
+        {
+            return provide(targetFrame);
+        }
+    }
+}
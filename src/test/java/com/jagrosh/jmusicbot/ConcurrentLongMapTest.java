@@ -0,0 +1,62 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import com.jagrosh.jmusicbot.utils.ConcurrentLongMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ConcurrentLongMapTest
+{
+    @Test
+    public void matchesHashMap()
+    {
+        Random random = new Random(7);
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>();
+        Map<Long,String> expected = new HashMap<>();
+        long base = 800000000000000000L; // snowflake-like keys
+        for(int i = 0; i < 200000; i++)
+        {
+            long key = base + random.nextInt(2000);
+            switch(random.nextInt(4))
+            {
+                case 0:
+                case 1:
+                    String value = "v" + i;
+                    assertEquals(expected.put(key, value), map.put(key, value));
+                    break;
+                case 2:
+                    assertEquals(expected.remove(key), map.remove(key));
+                    break;
+                default:
+                    String current = expected.get(key);
+                    if(current != null && random.nextBoolean())
+                    {
+                        assertTrue(map.remove(key, current));
+                        expected.remove(key);
+                    }
+                    else
+                        assertFalse(map.remove(key, "other"));
+            }
+            assertEquals(expected.get(key), map.get(key));
+        }
+        assertEquals(expected.size(), map.size());
+        Map<Long,String> visited = new HashMap<>();
+        map.forEach((key, value) -> assertNull(visited.put(key, value)));
+        assertEquals(expected, visited);
+    }
+}
@@ -15,8 +15,16 @@
  */
 package com.jagrosh.jmusicbot;
 
+import com.jagrosh.jmusicbot.queue.AbstractQueue;
 import com.jagrosh.jmusicbot.queue.FairQueue;
+import com.jagrosh.jmusicbot.queue.LinearQueue;
 import com.jagrosh.jmusicbot.queue.Queueable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -46,13 +54,204 @@ public class FairQueueTest
         assertEquals(queue.size(), size);
     }
     
+    @Test
+    public void roundRobinOrder()
+    {
+        FairQueue<Q> queue = new FairQueue<>(null);
+        long[] added = {1, 1, 1, 2, 2, 3};
+        int[] positions = {0, 1, 2, 1, 3, 2};
+        for(int i=0; i<added.length; i++)
+            assertEquals(positions[i], queue.add(new Q(added[i])));
+        assertArrayEquals(new long[]{1, 2, 3, 1, 2, 1}, identifiers(queue));
+    }
+    
+    @Test
+    public void addAfterPull()
+    {
+        FairQueue<Q> queue = new FairQueue<>(null);
+        for(long id: new long[]{1, 2, 1, 2})
+            queue.add(new Q(id));
+        assertEquals(1, queue.pull().getIdentifier());
+        queue.add(new Q(3));
+        queue.add(new Q(1));
+        assertArrayEquals(new long[]{2, 1, 3, 2, 1}, identifiers(queue));
+    }
+    
+    @Test
+    public void addAfterMove()
+    {
+        FairQueue<Q> queue = new FairQueue<>(null);
+        for(long id: new long[]{1, 2, 3, 1, 2, 3})
+            queue.add(new Q(id));
+        queue.moveItem(5, 0);
+        queue.addAt(0, new Q(4));
+        queue.add(new Q(3));
+        assertArrayEquals(new long[]{4, 3, 1, 2, 3, 1, 2, 3}, identifiers(queue));
+        assertEquals(8, queue.size());
+        queue.removeAll(3);
+        queue.add(new Q(3));
+        assertArrayEquals(new long[]{4, 1, 2, 3, 1, 2}, identifiers(queue));
+    }
+    
+    @Test
+    public void totalsFollowChanges()
+    {
+        FairQueue<Q> queue = new FairQueue<>(null);
+        for(long id: new long[]{1, 2, 1, 2, 1})
+            queue.add(new Q(id, id * 1000));
+        assertEquals(7000, queue.getDuration());
+        assertEquals(3, queue.getCount(1));
+        assertEquals(4000, queue.getDuration(2));
+        queue.pull();
+        queue.removeAll(2);
+        assertEquals(2000, queue.getDuration());
+        assertEquals(0, queue.getCount(2));
+        queue.add(new Q(3, Long.MAX_VALUE));
+        assertEquals(Long.MAX_VALUE, queue.getDuration());
+        queue.skip(1);
+        assertEquals(Long.MAX_VALUE, queue.getDuration(3));
+        assertEquals(1000, queue.getDuration(1));
+        queue.clear();
+        assertEquals(0, queue.getDuration());
+        assertEquals(0, queue.getCount(3));
+    }
+    
+    @Test
+    public void positionsFollowChanges()
+    {
+        Random random = new Random(3);
+        for(AbstractQueue<Q> queue: Arrays.asList(new FairQueue<Q>(null), new LinearQueue<Q>(null)))
+        {
+            for(int i=0; i<2000; i++)
+            {
+                switch(random.nextInt(6))
+                {
+                    case 0: case 1: case 2: queue.add(new Q(random.nextInt(5))); break;
+                    case 3: if(!queue.isEmpty()) queue.remove(random.nextInt(queue.size())); break;
+                    case 4: if(!queue.isEmpty()) queue.moveItem(random.nextInt(queue.size()), random.nextInt(queue.size())); break;
+                    default: if(!queue.isEmpty()) queue.pull();
+                }
+            }
+            queue.shuffle(2);
+            for(int i=0; i<queue.size(); i++)
+                assertEquals(i, queue.indexOf(queue.get(i)));
+            List<Q> mine = queue.getEntries(3);
+            assertEquals(queue.getCount(3), mine.size());
+            int[] indexes = queue.indexesOf(mine);
+            for(int i=0; i<mine.size(); i++)
+                assertSame(mine.get(i), queue.getRange(indexes[i], indexes[i] + 1).get(0));
+            assertEquals(Math.min(5, Math.max(0, queue.size() - 10)), queue.getRange(10, 15).size());
+            for(int i=1; i<mine.size(); i++)
+                assertTrue(queue.indexOf(mine.get(i-1)) < queue.indexOf(mine.get(i)));
+            int count = queue.getCount(1);
+            int size = queue.size();
+            assertEquals(count, queue.removeAll(1));
+            assertEquals(size - count, queue.size());
+            assertEquals(-1, queue.indexOf(new Q(1)));
+            assertTrue(queue.getList().stream().noneMatch(q -> q.getIdentifier() == 1));
+        }
+    }
+    
+    @Test
+    public void addAllMatchesAdd()
+    {
+        Random random = new Random(5);
+        FairQueue<Q> one = new FairQueue<>(null), batch = new FairQueue<>(null);
+        for(int i=0; i<200; i++)
+        {
+            List<Q> items = new ArrayList<>();
+            int size = random.nextInt(3) == 0 ? 1 + random.nextInt(50) : 1 + random.nextInt(3);
+            int requester = random.nextInt(6);
+            boolean mixed = random.nextInt(4) == 0;
+            for(int j=0; j<size; j++)
+                items.add(new Q(mixed ? random.nextInt(6) : requester));
+            items.forEach(one::add);
+            batch.addAll(items);
+            if(random.nextBoolean())
+            {
+                one.pull();
+                batch.pull();
+            }
+            assertArrayEquals(identifiers(one), identifiers(batch));
+        }
+        assertEquals(one.getCount(2), batch.getCount(2));
+        for(int i=0; i<batch.size(); i++)
+            assertEquals(i, batch.indexOf(batch.get(i)));
+    }
+    
+    @Test
+    public void matchesOriginalPlacement()
+    {
+        // the placement FairQueue has always used, scanning a plain list
+        Random random = new Random(11);
+        FairQueue<Q> queue = new FairQueue<>(null);
+        List<Q> expected = new ArrayList<>();
+        for(int i=0; i<5000; i++)
+        {
+            int op = random.nextInt(10);
+            if(op < 6)
+            {
+                Q item = new Q(random.nextInt(7));
+                int index = originalIndex(expected, item.getIdentifier());
+                expected.add(index, item);
+                assertEquals(index, queue.add(item));
+            }
+            else if(expected.isEmpty())
+                continue;
+            else if(op < 8)
+                assertSame(expected.remove(0), queue.pull());
+            else if(op < 9)
+            {
+                int from = random.nextInt(expected.size()), to = random.nextInt(expected.size());
+                expected.add(to, expected.remove(from));
+                queue.moveItem(from, to);
+            }
+            else
+            {
+                int index = random.nextInt(expected.size());
+                assertSame(expected.remove(index), queue.remove(index));
+            }
+            assertEquals(expected.size(), queue.size());
+        }
+        for(int i=0; i<expected.size(); i++)
+            assertSame(expected.get(i), queue.get(i));
+    }
+    
+    private static int originalIndex(List<Q> list, long identifier)
+    {
+        int lastIndex;
+        for(lastIndex=list.size()-1; lastIndex>-1; lastIndex--)
+            if(list.get(lastIndex).getIdentifier() == identifier)
+                break;
+        lastIndex++;
+        Set<Long> set = new HashSet<>();
+        for(; lastIndex<list.size(); lastIndex++)
+        {
+            if(set.contains(list.get(lastIndex).getIdentifier()))
+                break;
+            set.add(list.get(lastIndex).getIdentifier());
+        }
+        return lastIndex;
+    }
+    
+    private long[] identifiers(FairQueue<Q> queue)
+    {
+        return queue.getList().stream().mapToLong(Q::getIdentifier).toArray();
+    }
+    
     private class Q implements Queueable
     {
-        private final long identifier;
+        private final long identifier, duration;
         
         private Q(long identifier)
+        {
+            this(identifier, 0);
+        }
+        
+        private Q(long identifier, long duration)
         {
             this.identifier = identifier;
+            this.duration = duration;
         }
         
         @Override
@@ -60,5 +259,11 @@ public class FairQueueTest
         {
             return identifier;
         }
+        
+        @Override
+        public long getDuration()
+        {
+            return duration;
+        }
     }
 }
@@ -0,0 +1,80 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import com.jagrosh.jmusicbot.utils.KeyedExecutor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class KeyedExecutorTest
+{
+    @Test
+    public void sameKeyRunsInOrder() throws Exception
+    {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        KeyedExecutor executor = new KeyedExecutor(pool);
+        List<List<Integer>> results = new ArrayList<>();
+        for(int key = 0; key < 8; key++)
+            results.add(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(8 * 1000);
+        for(int i = 0; i < 1000; i++)
+            for(int key = 0; key < 8; key++)
+            {
+                List<Integer> list = results.get(key);
+                int value = i;
+                executor.execute(key, () -> 
+                {
+                    list.add(value);
+                    done.countDown();
+                });
+            }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        for(List<Integer> list: results)
+        {
+            assertEquals(1000, list.size());
+            for(int i = 0; i < 1000; i++)
+                assertEquals(i, (int) list.get(i));
+        }
+        assertEquals(0, executor.getActiveKeys());
+    }
+    
+    @Test
+    public void differentKeysRunInParallel() throws Exception
+    {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        KeyedExecutor executor = new KeyedExecutor(pool);
+        CountDownLatch other = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        executor.execute(1, () -> 
+        {
+            try
+            {
+                if(other.await(10, TimeUnit.SECONDS))
+                    done.countDown();
+            }
+            catch(InterruptedException ignore) {}
+        });
+        executor.execute(2, other::countDown);
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import com.jagrosh.jmusicbot.settings.LogSettingsStore;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.json.JSONObject;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class LogSettingsStoreTest
+{
+    @Test
+    public void incompleteTailIsDropped() throws IOException
+    {
+        Path file = write(3);
+        try(RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw"))
+        {
+            raf.setLength(raf.length() - 3);
+        }
+        LogSettingsStore store = new LogSettingsStore(file, null);
+        Map<Long, JSONObject> all = store.loadAll();
+        assertEquals(2, all.size());
+        assertEquals(1, all.get(1L).getInt("volume"));
+        assertNull(store.load(3L));
+        store.write(record(3L));
+        store.close();
+        assertEquals(3, new LogSettingsStore(file, null).loadAll().size());
+        assertTrue(Files.exists(file.resolveSibling(file.getFileName() + ".bak")));
+    }
+
+    @Test
+    public void damagedRecordIsNotDropped() throws IOException
+    {
+        Path file = write(3);
+        byte[] before;
+        try(RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw"))
+        {
+            // a byte inside the first record's data
+            raf.seek(8 + 16 + 3);
+            raf.write('X');
+            before = new byte[(int) raf.length()];
+            raf.seek(0);
+            raf.readFully(before);
+        }
+        try
+        {
+            new LogSettingsStore(file, null).loadAll();
+            fail("a damaged record was accepted");
+        }
+        catch(IOException expected) {}
+        assertTrue(Arrays.equals(before, Files.readAllBytes(file)));
+    }
+
+    private static Path write(int guilds) throws IOException
+    {
+        Path file = Files.createTempDirectory("settings").resolve(LogSettingsStore.SETTINGS_FILE);
+        LogSettingsStore store = new LogSettingsStore(file, null);
+        for(long id = 1; id <= guilds; id++)
+            store.write(record(id));
+        store.close();
+        return file;
+    }
+
+    private static Map<Long, JSONObject> record(long id)
+    {
+        Map<Long, JSONObject> map = new HashMap<>();
+        map.put(id, new JSONObject().put("volume", id));
+        return map;
+    }
+}
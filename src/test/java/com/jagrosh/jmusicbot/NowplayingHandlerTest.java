@@ -0,0 +1,95 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import com.jagrosh.jmusicbot.audio.NowplayingHandler;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.function.Function;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.managers.AudioManager;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class NowplayingHandlerTest
+{
+    @Test
+    public void onlyConnectedGuild()
+    {
+        Guild a = guild(true), b = guild(false), c = guild(true);
+        assertSame(a, NowplayingHandler.getOnlyConnectedGuild(Arrays.asList(a, b)));
+        assertSame(c, NowplayingHandler.getOnlyConnectedGuild(Arrays.asList(b, c)));
+        assertNull(NowplayingHandler.getOnlyConnectedGuild(Arrays.asList(a, b, c)));
+        assertNull(NowplayingHandler.getOnlyConnectedGuild(Collections.singletonList(b)));
+        assertNull(NowplayingHandler.getOnlyConnectedGuild(Collections.emptyList()));
+    }
+
+    @Test
+    public void unchangedStateIsNotEdited()
+    {
+        // 3 minutes, so the progress bar moves a cell every 15 seconds
+        long state = NowplayingHandler.getState(42, 1000, 180000, false, 3);
+        assertEquals(state, NowplayingHandler.getState(42, 14000, 180000, false, 3));
+        assertFalse(NowplayingHandler.needsEdit(state, state, 5000));
+        assertFalse(NowplayingHandler.needsEdit(state, state, 30000));
+        
+        long paused = NowplayingHandler.getState(42, 14000, 180000, true, 3);
+        assertFalse(NowplayingHandler.needsEdit(paused, paused, 600000));
+        
+        assertTrue(NowplayingHandler.needsEdit(NowplayingHandler.getState(42, 16000, 180000, false, 3), state, 5000));
+        assertTrue(NowplayingHandler.needsEdit(NowplayingHandler.getState(43, 1000, 180000, false, 3), state, 5000));
+        assertTrue(NowplayingHandler.needsEdit(paused, state, 5000));
+        assertTrue(NowplayingHandler.needsEdit(NowplayingHandler.getState(42, 1000, 180000, false, 2), state, 5000));
+        assertTrue(NowplayingHandler.needsEdit(0, state, 5000));
+        // the elapsed time text still moves now and then
+        assertTrue(NowplayingHandler.needsEdit(state, state, 60000));
+    }
+
+    @Test
+    public void followsConnectionsWithoutEvents()
+    {
+        // a guild whose connection went away without a voice event, e.g. after a kick
+        boolean[] connected = {true};
+        Guild kicked = guild(connected), other = guild(true);
+        assertNull(NowplayingHandler.getOnlyConnectedGuild(Arrays.asList(kicked, other)));
+        connected[0] = false;
+        assertSame(other, NowplayingHandler.getOnlyConnectedGuild(Arrays.asList(kicked, other)));
+    }
+
+    private static Guild guild(boolean connected)
+    {
+        return guild(new boolean[]{connected});
+    }
+
+    private static Guild guild(boolean[] connected)
+    {
+        AudioManager manager = proxy(AudioManager.class, name -> name.equals("isConnected") ? connected[0] : null);
+        return proxy(Guild.class, name -> name.equals("getAudioManager") ? manager : null);
+    }
+
+    private static <T> T proxy(Class<T> type, Function<String, Object> methods)
+    {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (p, method, args) ->
+        {
+            switch(method.getName())
+            {
+                case "equals": return p == args[0];
+                case "hashCode": return System.identityHashCode(p);
+                case "toString": return type.getSimpleName();
+                default: return methods.apply(method.getName());
+            }
+        }));
+    }
+}
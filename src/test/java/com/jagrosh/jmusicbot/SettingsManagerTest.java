@@ -0,0 +1,228 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import com.jagrosh.jmusicbot.settings.RepeatMode;
+import com.jagrosh.jmusicbot.settings.Settings;
+import com.jagrosh.jmusicbot.settings.SettingsManager;
+import com.jagrosh.jmusicbot.settings.SettingsStore;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.json.JSONObject;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class SettingsManagerTest
+{
+    @Test
+    public void defaultsAreNotWritten()
+    {
+        MemoryStore store = new MemoryStore();
+        SettingsManager manager = new SettingsManager(store, 0, 10);
+        assertEquals(100, manager.getSettings(1L).getVolume());
+        manager.getSettings(2L).setVolume(50);
+        manager.shutdown();
+        assertFalse(store.records.containsKey(1L));
+        assertEquals(50, store.records.get(2L).getInt("volume"));
+    }
+    
+    @Test
+    public void defaultsAreNotCached()
+    {
+        MemoryStore store = new MemoryStore();
+        SettingsManager manager = new SettingsManager(store, 60000, 10);
+        Settings first = manager.getSettings(1L);
+        assertNotSame(first, manager.getSettings(1L));
+        first.setVolume(50);
+        assertSame(first, manager.getSettings(1L));
+    }
+    
+    @Test
+    public void evictedChangesAreKept()
+    {
+        MemoryStore store = new MemoryStore();
+        // a long delay, so the changes are still pending while the guilds are evicted
+        SettingsManager manager = new SettingsManager(store, 60000, 1);
+        for(long id = 0; id < 100; id++)
+            manager.getSettings(id).setVolume((int) id);
+        for(long id = 0; id < 100; id++)
+            assertEquals(id, manager.getSettings(id).getVolume());
+        manager.shutdown();
+        SettingsManager reloaded = new SettingsManager(store, 0, 1);
+        for(long id = 0; id < 100; id++)
+            assertEquals(id, reloaded.getSettings(id).getVolume());
+    }
+    
+    @Test
+    public void evictionBeforeFlushKeepsInstance() throws InterruptedException
+    {
+        MemoryStore store = new MemoryStore();
+        // one guild per stripe, so touching a handful of other guilds evicts the changed one
+        SettingsManager manager = new SettingsManager(store, 60000, 1);
+        Settings changed = manager.getSettings(1L);
+        changed.setVolume(50);
+        evict(manager);
+        assertSame(changed, manager.getSettings(1L));
+        assertEquals(1, store.loads.get());
+        
+        // and again while the change is being written
+        CountDownLatch writing = new CountDownLatch(1), release = new CountDownLatch(1);
+        store.writeStarted = writing;
+        store.writeRelease = release;
+        Thread flush = new Thread(manager::shutdown);
+        flush.start();
+        writing.await();
+        // the other guilds are being written too, so reading them is enough to fill the cache again
+        for(long id = 2; id < 200; id++)
+            manager.getSettings(id);
+        assertSame(changed, manager.getSettings(1L));
+        assertEquals(1, store.loads.get());
+        release.countDown();
+        flush.join();
+        assertEquals(50, store.records.get(1L).getInt("volume"));
+    }
+    
+    private static void evict(SettingsManager manager)
+    {
+        // only changed settings are cached
+        for(long id = 2; id < 200; id++)
+            manager.getSettings(id).setVolume(10);
+    }
+    
+    @Test
+    public void failedWriteIsRetried() throws InterruptedException
+    {
+        MemoryStore store = new MemoryStore();
+        store.failWrites.set(1);
+        SettingsManager manager = new SettingsManager(store, 10, 100);
+        manager.getSettings(1L).setVolume(50);
+        // nothing else changes, so only a retry can write it
+        for(int i = 0; i < 100 && !store.records.containsKey(1L); i++)
+            Thread.sleep(50);
+        assertEquals(50, store.records.get(1L).getInt("volume"));
+    }
+    
+    @Test
+    public void concurrentAccess() throws InterruptedException
+    {
+        int threads = 8, guildsPerThread = 50, iterations = 20000;
+        MemoryStore store = new MemoryStore();
+        // a tiny cache and no write delay, so evictions, reloads and writes all overlap
+        SettingsManager manager = new SettingsManager(store, 0, 32);
+        int[][] last = new int[threads][guildsPerThread];
+        Queue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1), done = new CountDownLatch(threads);
+        for(int t = 0; t < threads; t++)
+        {
+            int thread = t;
+            new Thread(() -> 
+            {
+                SplittableRandom random = new SplittableRandom(thread);
+                try
+                {
+                    start.await();
+                    for(int i = 0; i < iterations; i++)
+                    {
+                        // every thread only changes its own guilds, but reads everyone's
+                        int guild = random.nextInt(guildsPerThread);
+                        manager.getSettings(guildId(thread, guild, threads)).setVolume(i);
+                        last[thread][guild] = i;
+                        manager.getSettings(guildId(random.nextInt(threads), random.nextInt(guildsPerThread), threads)).getVolume();
+                        if(i % 1000 == 0)
+                            manager.getSettings(guildId(thread, guild, threads)).setRepeatMode(RepeatMode.ALL);
+                    }
+                }
+                catch(Throwable ex)
+                {
+                    errors.add(ex);
+                }
+                finally
+                {
+                    done.countDown();
+                }
+            }).start();
+        }
+        start.countDown();
+        done.await();
+        manager.shutdown();
+        assertTrue("errors: " + errors, errors.isEmpty());
+        
+        SettingsManager reloaded = new SettingsManager(store, 0, 0);
+        for(int t = 0; t < threads; t++)
+            for(int g = 0; g < guildsPerThread; g++)
+                assertEquals(last[t][g], reloaded.getSettings(guildId(t, g, threads)).getVolume());
+    }
+    
+    private static long guildId(int thread, int guild, int threads)
+    {
+        return 100000000000000000L + guild * threads + thread;
+    }
+    
+    private static class MemoryStore implements SettingsStore
+    {
+        private final Map<Long, JSONObject> records = new ConcurrentHashMap<>();
+        private final AtomicInteger loads = new AtomicInteger();
+        private volatile CountDownLatch writeStarted, writeRelease;
+        private final AtomicInteger failWrites = new AtomicInteger();
+
+        @Override
+        public Map<Long, JSONObject> loadAll()
+        {
+            return new HashMap<>(records);
+        }
+
+        @Override
+        public JSONObject load(long guildId)
+        {
+            if(guildId == 1L)
+                loads.incrementAndGet();
+            JSONObject o = records.get(guildId);
+            // hand out a copy, like a real store would parse a fresh object
+            return o == null ? null : new JSONObject(o.toString());
+        }
+
+        @Override
+        public void write(Map<Long, JSONObject> changed) throws IOException
+        {
+            if(failWrites.getAndDecrement() > 0)
+                throw new IOException("disk full");
+            if(writeStarted != null)
+            {
+                writeStarted.countDown();
+                try
+                {
+                    writeRelease.await();
+                }
+                catch(InterruptedException ignore) {}
+            }
+            changed.forEach((id, o) -> 
+            {
+                if(o.length() == 0)
+                    records.remove(id);
+                else
+                    records.put(id, o);
+            });
+        }
+
+        @Override
+        public void close() {}
+    }
+}
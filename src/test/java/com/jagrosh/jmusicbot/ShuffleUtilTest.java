@@ -0,0 +1,110 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.jagrosh.jmusicbot;
+
+import com.jagrosh.jmusicbot.utils.ShuffleUtil;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ShuffleUtilTest
+{
+    @Test
+    public void permutationsAreUniform()
+    {
+        // each of the 24 orders of 4 elements should come up about equally often
+        IntUnaryOperator random = ShuffleUtil.seeded(1);
+        int[] counts = new int[256];
+        int rounds = 240000;
+        for(int n = 0; n < rounds; n++)
+        {
+            int[] array = {0, 1, 2, 3};
+            ShuffleUtil.shuffle(array, random);
+            counts[array[0] | array[1] << 2 | array[2] << 4 | array[3] << 6]++;
+        }
+        int seen = 0;
+        for(int count: counts)
+        {
+            if(count == 0)
+                continue;
+            seen++;
+            assertTrue("count " + count, Math.abs(count - rounds / 24) < rounds / 24 / 10);
+        }
+        assertEquals(24, seen);
+    }
+    
+    @Test
+    public void addRandomlyIsUniform()
+    {
+        // adding 0, 1, 2 one at a time should give each of the 6 orders about equally often
+        int[] counts = new int[64];
+        int rounds = 60000;
+        IntUnaryOperator random = ShuffleUtil.seeded(7);
+        for(int n = 0; n < rounds; n++)
+        {
+            List<Integer> list = new ArrayList<>();
+            for(int i = 0; i < 3; i++)
+                ShuffleUtil.addRandomly(list, i, random);
+            counts[list.get(0) | list.get(1) << 2 | list.get(2) << 4]++;
+        }
+        int seen = 0;
+        for(int count: counts)
+        {
+            if(count == 0)
+                continue;
+            seen++;
+            assertTrue("count " + count, Math.abs(count - rounds / 6) < rounds / 6 / 10);
+        }
+        assertEquals(6, seen);
+    }
+    
+    @Test
+    public void seededIsReproducible()
+    {
+        List<Integer> first = new ArrayList<>(), second = new LinkedList<>();
+        for(int i = 0; i < 100; i++)
+        {
+            first.add(i);
+            second.add(i);
+        }
+        ShuffleUtil.shuffle(first, ShuffleUtil.seeded(42));
+        ShuffleUtil.shuffle(second, ShuffleUtil.seeded(42));
+        assertEquals(first, second);
+        assertNotEquals(new ArrayList<>(second), sorted(second));
+        assertEquals(sorted(first), sorted(second));
+    }
+    
+    @Test
+    public void fairShuffleKeepsKeyOrder()
+    {
+        List<Integer> list = new ArrayList<>();
+        for(int i = 0; i < 300; i++)
+            list.add(i);
+        ShuffleUtil.fairShuffle(list, i -> i % 3, ShuffleUtil.seeded(7));
+        for(int i = 0; i < list.size(); i++)
+            assertEquals(i % 3, list.get(i) % 3);
+        assertEquals(300, list.stream().distinct().count());
+    }
+    
+    private static List<Integer> sorted(List<Integer> list)
+    {
+        Integer[] array = list.toArray(new Integer[0]);
+        Arrays.sort(array);
+        return Arrays.asList(array);
+    }
+}